@@ -0,0 +1,82 @@
+/*
+* java-serialization - Benchmarks
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.ledmington.serialization.BatchSerializer;
+import com.ledmington.serialization.Serializer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares writing a large batch of objects with a single Serializer against writing it with a
+ * {@link BatchSerializer} on the common pool.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    private List<Object> batch;
+
+    @Setup
+    public void setup() {
+        // fixed seed, so that every run measures the same payload
+        final Random rnd = new Random(42);
+        batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            batch.add(List.of("value-" + rnd.nextInt(1000), rnd.nextLong(), rnd.nextDouble()));
+        }
+    }
+
+    @Benchmark
+    public int sequential() {
+        final Serializer ser = Serializer.to(OutputStream.nullOutputStream());
+        for (final Object obj : batch) {
+            ser.write(obj);
+        }
+        ser.flush();
+        return (int) ser.size();
+    }
+
+    @Benchmark
+    public void parallel() {
+        new BatchSerializer().write(batch, OutputStream.nullOutputStream());
+    }
+}
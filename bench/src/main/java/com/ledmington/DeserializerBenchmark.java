@@ -0,0 +1,193 @@
+/*
+* java-serialization - Benchmarks
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.ledmington.serialization.Deserializer;
+import com.ledmington.serialization.Serializer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures each {@code Deserializer.read*()} method. Every invocation reads {@link #N} values from a fresh
+ * Deserializer, so the reported scores are per single read.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DeserializerBenchmark {
+
+    private static final int N = 1024;
+
+    private byte[] bytes;
+    private byte[] booleans;
+    private byte[] shorts;
+    private byte[] ints;
+    private byte[] longs;
+    private byte[] floats;
+    private byte[] doubles;
+    private byte[] chars;
+    private byte[] boxedInts;
+    private byte[] boxedDoubles;
+    private byte[] strings;
+    private byte[] optionals;
+
+    @Setup
+    public void setup() {
+        bytes = serialize(ser -> ser.write((byte) 0x12));
+        booleans = serialize(ser -> ser.write(true));
+        shorts = serialize(ser -> ser.write((short) 0x1234));
+        ints = serialize(ser -> ser.write(0x12345678));
+        longs = serialize(ser -> ser.write(0x1234567890abcdefL));
+        floats = serialize(ser -> ser.write(1.2345f));
+        doubles = serialize(ser -> ser.write(1.23456789));
+        chars = serialize(ser -> ser.write('x'));
+        boxedInts = serialize(ser -> ser.write(Integer.valueOf(0x12345678)));
+        boxedDoubles = serialize(ser -> ser.write(Double.valueOf(1.23456789)));
+        strings = serialize(ser -> ser.write("a short ASCII string"));
+        optionals = serialize(ser -> ser.write(Optional.of(0x12345678)));
+    }
+
+    private static byte[] serialize(final Consumer<Serializer> writer) {
+        final Serializer ser = new Serializer();
+        for (int i = 0; i < N; i++) {
+            writer.accept(ser);
+        }
+        return ser.toByteArray();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void readByte(final Blackhole bh) {
+        final Deserializer des = new Deserializer(bytes);
+        for (int i = 0; i < N; i++) {
+            bh.consume(des.readByte());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void readBoolean(final Blackhole bh) {
+        final Deserializer des = new Deserializer(booleans);
+        for (int i = 0; i < N; i++) {
+            bh.consume(des.readBoolean());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void readShort(final Blackhole bh) {
+        final Deserializer des = new Deserializer(shorts);
+        for (int i = 0; i < N; i++) {
+            bh.consume(des.readShort());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void readInt(final Blackhole bh) {
+        final Deserializer des = new Deserializer(ints);
+        for (int i = 0; i < N; i++) {
+            bh.consume(des.readInt());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void readLong(final Blackhole bh) {
+        final Deserializer des = new Deserializer(longs);
+        for (int i = 0; i < N; i++) {
+            bh.consume(des.readLong());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void readFloat(final Blackhole bh) {
+        final Deserializer des = new Deserializer(floats);
+        for (int i = 0; i < N; i++) {
+            bh.consume(des.readFloat());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void readDouble(final Blackhole bh) {
+        final Deserializer des = new Deserializer(doubles);
+        for (int i = 0; i < N; i++) {
+            bh.consume(des.readDouble());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void readChar(final Blackhole bh) {
+        final Deserializer des = new Deserializer(chars);
+        for (int i = 0; i < N; i++) {
+            bh.consume(des.readChar());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void readBoxedInt(final Blackhole bh) {
+        readObjects(boxedInts, bh);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void readBoxedDouble(final Blackhole bh) {
+        readObjects(boxedDoubles, bh);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void readString(final Blackhole bh) {
+        readObjects(strings, bh);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void readOptional(final Blackhole bh) {
+        readObjects(optionals, bh);
+    }
+
+    private static void readObjects(final byte[] input, final Blackhole bh) {
+        final Deserializer des = new Deserializer(input);
+        for (int i = 0; i < N; i++) {
+            bh.consume(des.read());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+* java-serialization - Benchmarks
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks. Accepts the same command-line options of the JMH runner (for example
+ * {@code -prof gc}, {@code -bm avgt} or a regex to select benchmarks). When no profiler is explicitly requested,
+ * the GC profiler is enabled so that allocation rates are always reported.
+ */
+public final class Main {
+    public static void main(final String[] args) throws Exception {
+        final CommandLineOptions cli = new CommandLineOptions(args);
+        final ChainedOptionsBuilder opt = new OptionsBuilder().parent(cli);
+        if (cli.getProfilers().isEmpty()) {
+            opt.addProfiler(GCProfiler.class);
+        }
+        new Runner(opt.build()).run();
+    }
+}
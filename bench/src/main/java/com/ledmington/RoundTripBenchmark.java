@@ -0,0 +1,126 @@
+/*
+* java-serialization - Benchmarks
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.ledmington.serialization.Deserializer;
+import com.ledmington.serialization.Serializer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Serializes and deserializes a payload of mixed boxed values through {@link Serializer#write(Object)} and
+ * {@link Deserializer#read()}, for different payload sizes.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RoundTripBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    private Object[] payload;
+    private byte[] serialized;
+    // reused across invocations, to measure the steady state without per-message allocations
+    private Serializer reusedSerializer;
+    private Deserializer reusedDeserializer;
+
+    @Setup
+    public void setup() {
+        // fixed seed, so that every run measures the same payload
+        final Random rnd = new Random(42);
+        payload = new Object[size];
+        for (int i = 0; i < size; i++) {
+            payload[i] = switch (i % 6) {
+                case 0 -> rnd.nextInt();
+                case 1 -> rnd.nextLong();
+                case 2 -> rnd.nextDouble();
+                case 3 -> rnd.nextBoolean();
+                case 4 -> "value-" + rnd.nextInt(1000);
+                default -> Optional.of(rnd.nextInt(1000));
+            };
+        }
+        serialized = serialize();
+        reusedSerializer = new Serializer();
+        reusedDeserializer = new Deserializer(serialized);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        final Serializer ser = new Serializer();
+        for (final Object obj : payload) {
+            ser.write(obj);
+        }
+        return ser.toByteArray();
+    }
+
+    @Benchmark
+    public void deserialize(final Blackhole bh) {
+        final Deserializer des = new Deserializer(serialized);
+        for (int i = 0; i < size; i++) {
+            bh.consume(des.read());
+        }
+    }
+
+    @Benchmark
+    public void roundTrip(final Blackhole bh) {
+        final Serializer ser = new Serializer();
+        for (final Object obj : payload) {
+            ser.write(obj);
+        }
+        final Deserializer des = new Deserializer(ser.toByteArray());
+        for (int i = 0; i < size; i++) {
+            bh.consume(des.read());
+        }
+    }
+
+    @Benchmark
+    public int serializeReused() {
+        reusedSerializer.reset();
+        for (final Object obj : payload) {
+            reusedSerializer.write(obj);
+        }
+        return reusedSerializer.toByteBuffer().remaining();
+    }
+
+    @Benchmark
+    public void deserializeReused(final Blackhole bh) {
+        reusedDeserializer.reset(serialized);
+        for (int i = 0; i < size; i++) {
+            bh.consume(reusedDeserializer.read());
+        }
+    }
+}
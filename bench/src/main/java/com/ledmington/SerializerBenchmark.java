@@ -0,0 +1,227 @@
+/*
+* java-serialization - Benchmarks
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import com.ledmington.serialization.Serializer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures each {@link Serializer#write} overload. Every invocation writes {@link #N} values into a fresh
+ * Serializer, so the reported scores are per single write.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializerBenchmark {
+
+    private static final int N = 1024;
+
+    private final Boolean boxedBoolean = Boolean.TRUE;
+    private final Byte boxedByte = (byte) 0x12;
+    private final Short boxedShort = (short) 0x1234;
+    private final Integer boxedInt = 0x12345678;
+    private final Long boxedLong = 0x1234567890abcdefL;
+    private final Float boxedFloat = 1.2345f;
+    private final Double boxedDouble = 1.23456789;
+    private final Character boxedChar = 'x';
+    private final String string = "a short ASCII string";
+    private final Optional<Integer> optional = Optional.of(0x12345678);
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public Serializer writeByte() {
+        final Serializer ser = new Serializer();
+        for (int i = 0; i < N; i++) {
+            ser.write((byte) i);
+        }
+        return ser;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public Serializer writeBoolean() {
+        final Serializer ser = new Serializer();
+        for (int i = 0; i < N; i++) {
+            ser.write((i & 1) == 0);
+        }
+        return ser;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public Serializer writeShort() {
+        final Serializer ser = new Serializer();
+        for (int i = 0; i < N; i++) {
+            ser.write((short) i);
+        }
+        return ser;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public Serializer writeInt() {
+        final Serializer ser = new Serializer();
+        for (int i = 0; i < N; i++) {
+            ser.write(i);
+        }
+        return ser;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public Serializer writeLong() {
+        final Serializer ser = new Serializer();
+        for (int i = 0; i < N; i++) {
+            ser.write((long) i);
+        }
+        return ser;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public Serializer writeFloat() {
+        final Serializer ser = new Serializer();
+        for (int i = 0; i < N; i++) {
+            ser.write((float) i);
+        }
+        return ser;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public Serializer writeDouble() {
+        final Serializer ser = new Serializer();
+        for (int i = 0; i < N; i++) {
+            ser.write((double) i);
+        }
+        return ser;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public Serializer writeChar() {
+        final Serializer ser = new Serializer();
+        for (int i = 0; i < N; i++) {
+            ser.write((char) i);
+        }
+        return ser;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public Serializer writeBoxedBoolean() {
+        return writeObjects(boxedBoolean);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public Serializer writeBoxedByte() {
+        return writeObjects(boxedByte);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public Serializer writeBoxedShort() {
+        return writeObjects(boxedShort);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public Serializer writeBoxedInt() {
+        return writeObjects(boxedInt);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public Serializer writeBoxedLong() {
+        return writeObjects(boxedLong);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public Serializer writeBoxedFloat() {
+        return writeObjects(boxedFloat);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public Serializer writeBoxedDouble() {
+        return writeObjects(boxedDouble);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public Serializer writeBoxedChar() {
+        return writeObjects(boxedChar);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public Serializer writeString() {
+        return writeObjects(string);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public Serializer writeOptional() {
+        return writeObjects(optional);
+    }
+
+    @Benchmark
+    public byte[] toByteArray() {
+        final Serializer ser = new Serializer();
+        for (int i = 0; i < N; i++) {
+            ser.write(i);
+        }
+        return ser.toByteArray();
+    }
+
+    @Benchmark
+    public ByteBuffer toByteBuffer() {
+        final Serializer ser = new Serializer();
+        for (int i = 0; i < N; i++) {
+            ser.write(i);
+        }
+        return ser.toByteBuffer();
+    }
+
+    private static Serializer writeObjects(final Object obj) {
+        final Serializer ser = new Serializer();
+        for (int i = 0; i < N; i++) {
+            ser.write(obj);
+        }
+        return ser;
+    }
+}
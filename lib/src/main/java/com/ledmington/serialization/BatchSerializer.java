@@ -0,0 +1,207 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Serializes large batches of objects in parallel. The batch is split into chunks of consecutive objects, which are
+ * encoded by the tasks of a {@link ForkJoinPool}, each with its own Serializer. The buffers of the Serializers are then
+ * written in place, in order, with a single gathering write, so the output does not depend on the number of threads
+ * nor on scheduling. The Serializers are pooled and reused by the following batches.
+ *
+ * <p>The output is a container with one frame for each object and an index footer, exactly as written by a
+ * {@link ContainerWriter}, so it can be read back with random access and in parallel by a {@link ContainerReader}.
+ *
+ * <p>A BatchSerializer is not thread-safe, but the same instance can be used for any number of batches.
+ */
+public final class BatchSerializer {
+
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    // enough Serializers for all the chunks of a batch split with the default chunk size
+    private SerializationPool serializers = new SerializationPool(Chunks.count(pool));
+    private int chunkSize = 0;
+    private CodecRegistry registry = CodecRegistry.defaultRegistry();
+    private boolean variableLengthEncoding = false;
+    private boolean referenceTracking = false;
+    private boolean frameChecksums = false;
+
+    public BatchSerializer() {}
+
+    /**
+     * Sets the pool running the encoding tasks. The common pool is used by default.
+     */
+    public void setPool(final ForkJoinPool pool) {
+        this.pool = Objects.requireNonNull(pool);
+        this.serializers = new SerializationPool(Chunks.count(pool));
+    }
+
+    /**
+     * Sets the number of objects encoded by each task. When 0, which is the default, the chunk size is chosen
+     * depending on the size of the batch and on the parallelism of the pool.
+     */
+    public void setChunkSize(final int chunkSize) {
+        if (chunkSize < 0) {
+            throw new IllegalArgumentException(
+                    String.format("Chunk size must be non-negative but was %d.", chunkSize));
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @see Serializer#setCodecRegistry(CodecRegistry)
+     */
+    public void setCodecRegistry(final CodecRegistry registry) {
+        this.registry = Objects.requireNonNull(registry);
+    }
+
+    /**
+     * @see Serializer#setVariableLengthEncoding(boolean)
+     */
+    public void setVariableLengthEncoding(final boolean enabled) {
+        this.variableLengthEncoding = enabled;
+    }
+
+    /**
+     * Enables or disables reference tracking inside each frame.
+     *
+     * @see Serializer#setReferenceTracking(boolean)
+     */
+    public void setReferenceTracking(final boolean enabled) {
+        this.referenceTracking = enabled;
+    }
+
+    /**
+     * @see ContainerWriter#setFrameChecksums(boolean)
+     */
+    public void setFrameChecksums(final boolean enabled) {
+        this.frameChecksums = enabled;
+    }
+
+    /**
+     * Writes all the given objects, in order, to the given stream. The stream is never closed.
+     */
+    public void write(final List<?> objects, final OutputStream out) {
+        write(objects, Channels.newChannel(Objects.requireNonNull(out)));
+    }
+
+    /**
+     * Writes all the given objects, in order, to the given channel. The channel must be in blocking mode and it is
+     * never closed.
+     */
+    public void write(final List<?> objects, final WritableByteChannel out) {
+        Objects.requireNonNull(out);
+        // a single pass over the list, which may not be random-access nor safe to read from many threads
+        final Object[] snapshot = objects.toArray();
+        final Chunk[] chunks = encode(snapshot);
+        try {
+            write(chunks, snapshot.length, out);
+        } finally {
+            // the buffers of the Serializers can be reused only once they have been written
+            for (final Chunk c : chunks) {
+                serializers.release(c.ser());
+            }
+        }
+    }
+
+    private static void write(final Chunk[] chunks, final int size, final WritableByteChannel out) {
+        final ByteBuffer[] buffers = new ByteBuffer[chunks.length + 1];
+        final long[] offsets = new long[size];
+        long base = 0L;
+        int n = 0;
+        for (int i = 0; i < chunks.length; i++) {
+            for (final int offset : chunks[i].offsets()) {
+                offsets[n++] = base + offset;
+            }
+            buffers[i] = chunks[i].ser().toByteBuffer();
+            base += buffers[i].remaining();
+        }
+        buffers[chunks.length] = ContainerWriter.footer(offsets, n);
+        try {
+            if (out instanceof GatheringByteChannel gathering) {
+                long remaining = base + buffers[chunks.length].remaining();
+                while (remaining > 0L) {
+                    remaining -= gathering.write(buffers);
+                }
+            } else {
+                for (final ByteBuffer bb : buffers) {
+                    while (bb.hasRemaining()) {
+                        out.write(bb);
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The Serializer holding the frames of some consecutive objects, with the offset of each frame from the start of
+     * the chunk.
+     */
+    private record Chunk(Serializer ser, int[] offsets) {}
+
+    /**
+     * Encodes the given objects in parallel and returns the encoded chunks, in order.
+     */
+    private Chunk[] encode(final Object[] objects) {
+        final int size = objects.length;
+        final int chunk = chunkSize > 0 ? chunkSize : Chunks.size(size, pool);
+        final int count = Chunks.ceilDiv(size, chunk);
+        if (count <= 1) {
+            // not worth a task
+            return new Chunk[] {encode(objects, 0, size)};
+        }
+        final List<ForkJoinTask<Chunk>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int from = i * chunk;
+            final int to = Math.min(size, from + chunk);
+            tasks.add(pool.submit(() -> encode(objects, from, to)));
+        }
+        final Chunk[] chunks = new Chunk[count];
+        for (int i = 0; i < count; i++) {
+            chunks[i] = tasks.get(i).join();
+        }
+        return chunks;
+    }
+
+    private Chunk encode(final Object[] objects, final int from, final int to) {
+        final Serializer ser = serializers.borrowSerializer();
+        ser.setCodecRegistry(registry);
+        ser.setVariableLengthEncoding(variableLengthEncoding);
+        ser.setReferenceTracking(referenceTracking);
+        ser.setFrameChecksums(frameChecksums);
+        final int[] offsets = new int[to - from];
+        for (int i = from; i < to; i++) {
+            offsets[i - from] = (int) ser.size();
+            ser.writeFrame(objects[i]);
+        }
+        return new Chunk(ser, offsets);
+    }
+}
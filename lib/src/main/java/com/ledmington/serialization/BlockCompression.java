@@ -0,0 +1,296 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * The block format of compressed data. Each block starts with one byte telling how it is stored and with its
+ * uncompressed length as a fixed int:
+ *
+ * <ul>
+ *   <li>stored blocks ({@code 0x00}) are followed by the uncompressed bytes;
+ *   <li>compressed blocks ({@code 0x01}) are followed by their compressed length as a fixed int and by the compressed
+ *       bytes.
+ * </ul>
+ *
+ * <p>Blocks are at most 64 KB long, which is also the window of the LZ4 format.
+ */
+final class BlockCompression {
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    static final byte STORED = (byte) 0x00;
+    static final byte COMPRESSED = (byte) 0x01;
+    static final int MAX_BLOCK_SIZE = 1 << 16;
+    private static final int STORED_HEADER_SIZE = 1 + Integer.BYTES;
+    private static final int COMPRESSED_HEADER_SIZE = 1 + 2 * Integer.BYTES;
+
+    private BlockCompression() {}
+
+    /**
+     * Compresses whole arrays in memory. The blocks and the result are kept in buffers which are reused by the next
+     * call.
+     */
+    static final class InMemoryOutput implements ByteSink {
+        private final Output output;
+        private byte[] bytes = new byte[0];
+        private int length = 0;
+
+        InMemoryOutput(final Compressor compressor) {
+            this.output = new Output(this, compressor);
+        }
+
+        /**
+         * Compresses the given bytes, replacing the ones compressed by the previous call.
+         */
+        void compress(final byte[] b, final int off, final int len) {
+            length = 0;
+            try {
+                output.write(b, off, len);
+                // writes the last block
+                output.flush();
+            } catch (final IOException e) {
+                // writing to memory never fails
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(bytes, 0, length);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            if (bytes.length - length < len) {
+                bytes = Arrays.copyOf(bytes, (int) Math.min(Integer.MAX_VALUE - 8L, 2L * (length + len)));
+            }
+            System.arraycopy(b, off, bytes, length, len);
+            length += len;
+        }
+    }
+
+    /**
+     * Compresses everything written to it into blocks, which are written to another sink. The bytes are collected
+     * until a whole block is ready, so that the size of the writes does not affect the compression ratio: only
+     * {@link #flush()} cuts a shorter block, making all the bytes written so far readable on the other side.
+     */
+    static final class Output implements ByteSink {
+        private final ByteSink out;
+        private final Compressor compressor;
+        private final byte[] header = new byte[STORED_HEADER_SIZE];
+        private byte[] block = new byte[0];
+        // the bytes of the next block, allocated on the first write which does not fill a whole block
+        private byte[] pending = null;
+        private int pendingLength = 0;
+
+        Output(final ByteSink out, final Compressor compressor) {
+            this.out = out;
+            this.compressor = compressor;
+        }
+
+        /**
+         * Writes the collected bytes as a block, even if shorter than the maximum, and then flushes the other sink.
+         */
+        @Override
+        public void flush() throws IOException {
+            if (pendingLength > 0) {
+                writeBlock(pending, 0, pendingLength);
+                pendingLength = 0;
+            }
+            out.flush();
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            int done = 0;
+            if (pendingLength > 0) {
+                done = append(b, off, len);
+            }
+            // whole blocks are compressed straight from the input, without collecting them first
+            while (len - done >= MAX_BLOCK_SIZE) {
+                writeBlock(b, off + done, MAX_BLOCK_SIZE);
+                done += MAX_BLOCK_SIZE;
+            }
+            if (done < len) {
+                append(b, off + done, len - done);
+            }
+        }
+
+        /**
+         * Collects as many of the given bytes as fit in the next block, writing it once full. Returns the number of
+         * bytes collected.
+         */
+        private int append(final byte[] b, final int off, final int len) throws IOException {
+            if (pending == null) {
+                pending = new byte[MAX_BLOCK_SIZE];
+            }
+            final int n = Math.min(len, MAX_BLOCK_SIZE - pendingLength);
+            System.arraycopy(b, off, pending, pendingLength, n);
+            pendingLength += n;
+            if (pendingLength == MAX_BLOCK_SIZE) {
+                writeBlock(pending, 0, MAX_BLOCK_SIZE);
+                pendingLength = 0;
+            }
+            return n;
+        }
+
+        private void writeBlock(final byte[] b, final int off, final int len) throws IOException {
+            final int capacity = COMPRESSED_HEADER_SIZE + compressor.maxCompressedLength(len);
+            if (block.length < capacity) {
+                block = new byte[capacity];
+            }
+            final int compressed = compressor.compress(b, off, len, block, COMPRESSED_HEADER_SIZE);
+            // the compressed block has a longer header, which must be paid off as well
+            if (COMPRESSED_HEADER_SIZE + compressed < STORED_HEADER_SIZE + len) {
+                block[0] = COMPRESSED;
+                INT.set(block, 1, len);
+                INT.set(block, 1 + Integer.BYTES, compressed);
+                out.write(block, 0, COMPRESSED_HEADER_SIZE + compressed);
+            } else {
+                header[0] = STORED;
+                INT.set(header, 1, len);
+                out.write(header, 0, STORED_HEADER_SIZE);
+                out.write(b, off, len);
+            }
+        }
+    }
+
+    /**
+     * Reads the uncompressed bytes of the blocks read from another source. Stored blocks are read directly into the
+     * destination, while compressed ones are decompressed into an internal buffer first.
+     */
+    static final class Input implements ByteSource {
+        private ByteSource in;
+        private final Compressor compressor;
+        private final byte[] header = new byte[COMPRESSED_HEADER_SIZE];
+        private byte[] compressed = new byte[0];
+        private final byte[] block = new byte[MAX_BLOCK_SIZE];
+        private int blockPos = 0;
+        // the bytes of the current block not read yet
+        private int remaining = 0;
+        private boolean stored = false;
+
+        Input(final Compressor compressor) {
+            this.compressor = compressor;
+        }
+
+        /**
+         * Starts reading the blocks of the given source, discarding the rest of the current block.
+         */
+        void reset(final ByteSource in) {
+            this.in = in;
+            this.blockPos = 0;
+            this.remaining = 0;
+            this.stored = false;
+        }
+
+        /**
+         * Returns the source of the compressed blocks.
+         */
+        ByteSource source() {
+            return in;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (remaining == 0 && !nextBlock()) {
+                return -1;
+            }
+            final int n = Math.min(len, remaining);
+            if (stored) {
+                final int r = in.read(b, off, n);
+                if (r == -1) {
+                    throw new InvalidBlockException("truncated block");
+                }
+                remaining -= r;
+                return r;
+            }
+            System.arraycopy(block, blockPos, b, off, n);
+            blockPos += n;
+            remaining -= n;
+            return n;
+        }
+
+        /**
+         * Reads the header of the next block, decompressing it if needed. Returns false if the source terminated
+         * before the block.
+         */
+        private boolean nextBlock() throws IOException {
+            if (!readFully(header, 0, 1, true)) {
+                return false;
+            }
+            readFully(header, 1, Integer.BYTES, false);
+            final int length = (int) INT.get(header, 1);
+            if (length <= 0 || length > MAX_BLOCK_SIZE) {
+                throw new InvalidBlockException(String.format("length %d", length));
+            }
+            if (header[0] == STORED) {
+                stored = true;
+                remaining = length;
+                return true;
+            }
+            if (header[0] != COMPRESSED) {
+                throw new InvalidBlockException(String.format("type 0x%02x", header[0]));
+            }
+            readFully(header, 1 + Integer.BYTES, Integer.BYTES, false);
+            final int compressedLength = (int) INT.get(header, 1 + Integer.BYTES);
+            if (compressedLength <= 0 || compressedLength > compressor.maxCompressedLength(length)) {
+                throw new InvalidBlockException(String.format("compressed length %d", compressedLength));
+            }
+            if (compressed.length < compressedLength) {
+                compressed = new byte[compressor.maxCompressedLength(MAX_BLOCK_SIZE)];
+            }
+            readFully(compressed, 0, compressedLength, false);
+            compressor.decompress(compressed, 0, compressedLength, block, 0, length);
+            stored = false;
+            blockPos = 0;
+            remaining = length;
+            return true;
+        }
+
+        /**
+         * Reads exactly {@code len} bytes. Returns false if the source terminated before the first one and {@code
+         * canEnd} is true.
+         */
+        private boolean readFully(final byte[] b, final int off, final int len, final boolean canEnd)
+                throws IOException {
+            int done = 0;
+            while (done < len) {
+                final int r = in.read(b, off + done, len - done);
+                if (r == -1) {
+                    if (done == 0 && canEnd) {
+                        return false;
+                    }
+                    throw new InvalidBlockException("truncated block");
+                }
+                done += r;
+            }
+            return true;
+        }
+    }
+}
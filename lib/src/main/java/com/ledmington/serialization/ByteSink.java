@@ -0,0 +1,33 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import java.io.IOException;
+
+/**
+ * A destination for the bytes produced by a {@link Serializer}.
+ */
+@FunctionalInterface
+interface ByteSink {
+    void write(byte[] b, int off, int len) throws IOException;
+
+    /**
+     * Writes out any bytes buffered by the destination itself. Does nothing by default.
+     */
+    default void flush() throws IOException {}
+}
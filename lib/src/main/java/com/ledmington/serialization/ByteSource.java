@@ -0,0 +1,32 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import java.io.IOException;
+
+/**
+ * An origin for the bytes consumed by a {@link Deserializer}.
+ */
+@FunctionalInterface
+interface ByteSource {
+    /**
+     * Reads up to {@code len} bytes into the given array, returning the number of bytes read or -1 if there are no
+     * more bytes to read.
+     */
+    int read(byte[] b, int off, int len) throws IOException;
+}
@@ -0,0 +1,52 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The policy splitting a sequence of objects among the tasks of a pool.
+ */
+final class Chunks {
+
+    // below this number of objects per chunk, the cost of a task dominates
+    private static final int MIN_CHUNK_SIZE = 256;
+    // more chunks than threads, so that threads which finish early can steal work
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private Chunks() {}
+
+    /**
+     * Returns the number of objects handled by each task when splitting {@code count} objects among the tasks of the
+     * given pool.
+     */
+    static int size(final int count, final ForkJoinPool pool) {
+        return Math.max(MIN_CHUNK_SIZE, ceilDiv(count, count(pool)));
+    }
+
+    /**
+     * Returns the largest number of chunks of the size chosen by {@link #size(int, ForkJoinPool)}.
+     */
+    static int count(final ForkJoinPool pool) {
+        return pool.getParallelism() * CHUNKS_PER_THREAD;
+    }
+
+    static int ceilDiv(final int x, final int y) {
+        return (int) (((long) x + y - 1L) / y);
+    }
+}
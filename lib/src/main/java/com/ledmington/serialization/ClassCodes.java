@@ -37,36 +37,90 @@ enum ClassCodes {
     LIST((byte) 11, List.class),
     SET((byte) 12, Set.class),
     MAP((byte) 13, Map.class),
-    ARRAY((byte) 14, Object[].class);
+    ARRAY((byte) 14, Object[].class),
+    BYTE_ARRAY((byte) 15, byte[].class),
+    BOOLEAN_ARRAY((byte) 16, boolean[].class),
+    SHORT_ARRAY((byte) 17, short[].class),
+    INT_ARRAY((byte) 18, int[].class),
+    LONG_ARRAY((byte) 19, long[].class),
+    FLOAT_ARRAY((byte) 20, float[].class),
+    DOUBLE_ARRAY((byte) 21, double[].class),
+    CHAR_ARRAY((byte) 22, char[].class),
+    RECORD((byte) 23, Record.class);
 
-    private static final Map<Byte, Class<?>> codeToClass = new HashMap<>();
-    private static final Map<Class<?>, Byte> classToCode = new HashMap<>();
+    /**
+     * Code of a back-reference to a value already written, followed by its index as an unsigned LEB128 varint. It is
+     * not associated with any class and it is only used when reference tracking is enabled.
+     */
+    static final byte REFERENCE = (byte) 0xff;
 
-    private static void buildInnerMaps() {
-        for (ClassCodes c : ClassCodes.values()) {
-            if (codeToClass.containsKey(c.code)) {
+    /**
+     * Prefix of a List, Set, array or Map whose elements all have the same class code. It is followed by the code of
+     * the container, its length and the code of the elements (of the keys and then of the values, for Maps), after
+     * which the elements are written without their code.
+     */
+    static final byte HOMOGENEOUS = (byte) 0xfe;
+
+    // Both lookups are built once, during class initialization, so they are safely published to all threads
+    private static final ClassCodes[] codeToClass = new ClassCodes[256];
+    private static final Map<Class<?>, ClassCodes> classToCode = new HashMap<>();
+
+    static {
+        for (final ClassCodes c : ClassCodes.values()) {
+            if (codeToClass[c.code & 0xff] != null) {
                 throw new IllegalStateException(String.format("Duplicate code %d", c.code));
             }
             if (classToCode.containsKey(c.clazz)) {
                 throw new IllegalStateException(String.format("Duplicate class %s", c.clazz.getName()));
             }
-            codeToClass.put(c.code, c.clazz);
-            classToCode.put(c.clazz, c.code);
+            if (c.code == REFERENCE || c.code == HOMOGENEOUS) {
+                throw new IllegalStateException(String.format("Code %d is reserved", c.code));
+            }
+            codeToClass[c.code & 0xff] = c;
+            classToCode.put(c.clazz, c);
         }
     }
 
-    public static Class<?> fromCode(byte code) {
-        if (codeToClass.isEmpty()) {
-            buildInnerMaps();
+    private static final ClassValue<ClassCodes> cache = new ClassValue<>() {
+        @Override
+        protected ClassCodes computeValue(final Class<?> type) {
+            final ClassCodes c = classToCode.get(type);
+            if (c != null) {
+                return c;
+            }
+            // containers are accepted regardless of their implementation class
+            if (List.class.isAssignableFrom(type)) {
+                return LIST;
+            }
+            if (Set.class.isAssignableFrom(type)) {
+                return SET;
+            }
+            if (Map.class.isAssignableFrom(type)) {
+                return MAP;
+            }
+            if (Object[].class.isAssignableFrom(type)) {
+                return ARRAY;
+            }
+            if (type.isRecord()) {
+                return RECORD;
+            }
+            return null;
         }
-        return codeToClass.get(code);
+    };
+
+    /**
+     * Returns the ClassCodes with the given code, or null if there is none.
+     */
+    public static ClassCodes fromCode(byte code) {
+        return codeToClass[code & 0xff];
     }
 
-    public static byte fromClass(final Class<?> clazz) {
-        if (classToCode.isEmpty()) {
-            buildInnerMaps();
-        }
-        return classToCode.get(clazz);
+    /**
+     * Returns the ClassCodes able to represent instances of the given class, or null if there is none. The result is
+     * cached for each class.
+     */
+    public static ClassCodes fromClass(final Class<?> clazz) {
+        return cache.get(clazz);
     }
 
     private final byte code;
@@ -77,6 +131,17 @@ enum ClassCodes {
         this.clazz = clazz;
     }
 
+    /**
+     * Returns true if repeated values with this code are written as back-references when reference tracking is
+     * enabled. Boxed primitives and Optionals are never shared, since they are about as small as a back-reference.
+     */
+    boolean isShareable() {
+        return switch (this) {
+            case BYTE, BOOLEAN, SHORT, INTEGER, LONG, FLOAT, DOUBLE, CHAR, OPTIONAL -> false;
+            default -> true;
+        };
+    }
+
     public byte getCode() {
         return code;
     }
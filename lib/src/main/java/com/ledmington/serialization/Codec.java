@@ -0,0 +1,36 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+/**
+ * Writes and reads the content of the instances of a class. The class code and whatever identifies the class are
+ * written by the caller: a Codec only deals with the values.
+ */
+public interface Codec<T> {
+    void write(Serializer ser, T value);
+
+    T read(Deserializer des);
+
+    /**
+     * Advances past a value, as {@link Deserializer#skip()} does. By default, the value is read and discarded:
+     * codecs can override this method to avoid allocating it.
+     */
+    default void skip(final Deserializer des) {
+        read(des);
+    }
+}
@@ -0,0 +1,346 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Generates, at runtime, a hidden class implementing {@link Codec} for a record class. The generated methods are
+ * straight-line bytecode which, for each component, calls the accessor of the record and the matching
+ * {@code Serializer.write} overload or {@code Deserializer.read*} method, so that the JIT can inline a whole record
+ * encode.
+ *
+ * <p>The hidden class is defined as a nestmate of the record, so that it can also access private records and their
+ * private canonical constructor.
+ */
+final class CodecGenerator {
+
+    private static final String SERIALIZER = internalName(Serializer.class);
+    private static final String DESERIALIZER = internalName(Deserializer.class);
+    private static final String OBJECT = internalName(Object.class);
+
+    // opcodes
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int ALOAD_3 = 0x2d;
+    private static final int ASTORE_3 = 0x4e;
+    private static final int DUP = 0x59;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int NEW = 0xbb;
+    private static final int CHECKCAST = 0xc0;
+
+    private static final Map<Class<?>, String> READERS = new HashMap<>();
+
+    static {
+        READERS.put(boolean.class, "readBoolean");
+        READERS.put(byte.class, "readByte");
+        READERS.put(short.class, "readShort");
+        READERS.put(int.class, "readInt");
+        READERS.put(long.class, "readLong");
+        READERS.put(float.class, "readFloat");
+        READERS.put(double.class, "readDouble");
+        READERS.put(char.class, "readChar");
+    }
+
+    /**
+     * Generates a codec for the given record class.
+     *
+     * @throws IllegalAccessException
+     *     if the package of the record is not open to this library
+     */
+    static Codec<?> generate(final Class<?> type) throws IllegalAccessException {
+        if (!type.isRecord()) {
+            throw new IllegalArgumentException(String.format("%s is not a record.", type.getName()));
+        }
+        final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        final byte[] bytes = new CodecGenerator(type).generate();
+        final Class<?> hidden = lookup.defineHiddenClass(bytes, true, MethodHandles.Lookup.ClassOption.NESTMATE)
+                .lookupClass();
+        try {
+            return (Codec<?>) MethodHandles.privateLookupIn(hidden, lookup)
+                    .findConstructor(hidden, MethodType.methodType(void.class))
+                    .invoke();
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private static String internalName(final Class<?> c) {
+        return c.isArray() ? c.descriptorString() : c.getName().replace('.', '/');
+    }
+
+    private final Class<?> type;
+    private final ConstantPool cp = new ConstantPool();
+
+    private CodecGenerator(final Class<?> type) {
+        this.type = type;
+    }
+
+    private byte[] generate() {
+        final String self = internalName(type) + "$$Codec";
+        final int thisClass = cp.classRef(self);
+        final int superClass = cp.classRef(OBJECT);
+        final int codecInterface = cp.classRef(internalName(Codec.class));
+        final byte[] init = constructor();
+        final byte[] write = writeMethod();
+        final byte[] read = readMethod();
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeInt(0xcafebabe);
+            out.writeShort(0); // minor version
+            out.writeShort(61); // major version (Java 17)
+            cp.writeTo(out);
+            out.writeShort(0x0001 | 0x0010 | 0x0020); // ACC_PUBLIC | ACC_FINAL | ACC_SUPER
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(codecInterface);
+            out.writeShort(0); // fields
+            out.writeShort(3); // methods
+            out.write(init);
+            out.write(write);
+            out.write(read);
+            out.writeShort(0); // attributes
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return baos.toByteArray();
+    }
+
+    private byte[] constructor() {
+        final Code code = new Code();
+        code.op(ALOAD_0);
+        code.op(INVOKESPECIAL, cp.methodRef(OBJECT, "<init>", "()V"));
+        code.op(RETURN);
+        return method("<init>", "()V", code, 1, 1);
+    }
+
+    /**
+     * {@code void write(Serializer ser, Object obj)}
+     */
+    private byte[] writeMethod() {
+        final Code code = new Code();
+        final int recordClass = cp.classRef(internalName(type));
+        code.op(ALOAD_2);
+        code.op(CHECKCAST, recordClass);
+        code.op(ASTORE_3);
+        for (final RecordComponent rc : type.getRecordComponents()) {
+            final Class<?> t = rc.getType();
+            code.op(ALOAD_1);
+            code.op(ALOAD_3);
+            code.op(
+                    INVOKEVIRTUAL,
+                    cp.methodRef(
+                            internalName(type),
+                            rc.getAccessor().getName(),
+                            MethodType.methodType(t).toMethodDescriptorString()));
+            final Class<?> param = t.isPrimitive() ? t : Object.class;
+            code.op(
+                    INVOKEVIRTUAL,
+                    cp.methodRef(
+                            SERIALIZER,
+                            "write",
+                            MethodType.methodType(void.class, param).toMethodDescriptorString()));
+        }
+        code.op(RETURN);
+        return method(
+                "write",
+                MethodType.methodType(void.class, Serializer.class, Object.class)
+                        .toMethodDescriptorString(),
+                code,
+                3,
+                4);
+    }
+
+    /**
+     * {@code Object read(Deserializer des)}
+     */
+    private byte[] readMethod() {
+        final Code code = new Code();
+        final RecordComponent[] components = type.getRecordComponents();
+        final Class<?>[] types = new Class<?>[components.length];
+        code.op(NEW, cp.classRef(internalName(type)));
+        code.op(DUP);
+        int slots = 0;
+        for (int i = 0; i < components.length; i++) {
+            final Class<?> t = components[i].getType();
+            types[i] = t;
+            slots += (t == long.class || t == double.class) ? 2 : 1;
+            code.op(ALOAD_1);
+            if (t.isPrimitive()) {
+                code.op(
+                        INVOKEVIRTUAL,
+                        cp.methodRef(
+                                DESERIALIZER, READERS.get(t), MethodType.methodType(t).toMethodDescriptorString()));
+            } else {
+                code.op(
+                        INVOKEVIRTUAL,
+                        cp.methodRef(
+                                DESERIALIZER,
+                                "read",
+                                MethodType.methodType(Object.class).toMethodDescriptorString()));
+                if (t != Object.class) {
+                    code.op(CHECKCAST, cp.classRef(internalName(t)));
+                }
+            }
+        }
+        code.op(
+                INVOKESPECIAL,
+                cp.methodRef(
+                        internalName(type),
+                        "<init>",
+                        MethodType.methodType(void.class, types).toMethodDescriptorString()));
+        code.op(ARETURN);
+        return method(
+                "read",
+                MethodType.methodType(Object.class, Deserializer.class).toMethodDescriptorString(),
+                code,
+                2 + slots + 1,
+                2);
+    }
+
+    private byte[] method(
+            final String name, final String descriptor, final Code code, final int maxStack, final int maxLocals) {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeShort(0x0001); // ACC_PUBLIC
+            out.writeShort(cp.utf8(name));
+            out.writeShort(cp.utf8(descriptor));
+            out.writeShort(1); // attributes
+            final byte[] bytecode = code.toByteArray();
+            out.writeShort(cp.utf8("Code"));
+            out.writeInt(2 + 2 + 4 + bytecode.length + 2 + 2);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(bytecode.length);
+            out.write(bytecode);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * The body of a method, without branches.
+     */
+    private static final class Code {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        void op(final int opcode) {
+            bytes.write(opcode);
+        }
+
+        void op(final int opcode, final int index) {
+            bytes.write(opcode);
+            bytes.write(index >>> 8);
+            bytes.write(index & 0xff);
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * The constant pool of the generated class. Equal entries are stored only once.
+     */
+    private static final class ConstantPool {
+        private static final int CONSTANT_UTF8 = 1;
+        private static final int CONSTANT_CLASS = 7;
+        private static final int CONSTANT_METHODREF = 10;
+        private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> entries = new HashMap<>();
+        // index 0 is not used
+        private int count = 1;
+
+        int utf8(final String s) {
+            return entry("U" + s, () -> {
+                out.writeByte(CONSTANT_UTF8);
+                out.writeUTF(s);
+            });
+        }
+
+        int classRef(final String internalName) {
+            final int name = utf8(internalName);
+            return entry("C" + internalName, () -> {
+                out.writeByte(CONSTANT_CLASS);
+                out.writeShort(name);
+            });
+        }
+
+        int methodRef(final String owner, final String name, final String descriptor) {
+            final int ownerIndex = classRef(owner);
+            final int nameIndex = utf8(name);
+            final int descriptorIndex = utf8(descriptor);
+            final int nameAndType = entry("N" + name + ' ' + descriptor, () -> {
+                out.writeByte(CONSTANT_NAME_AND_TYPE);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+            return entry("M" + owner + '.' + name + descriptor, () -> {
+                out.writeByte(CONSTANT_METHODREF);
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        @FunctionalInterface
+        private interface EntryWriter {
+            void write() throws IOException;
+        }
+
+        private int entry(final String key, final EntryWriter writer) {
+            final Integer existing = entries.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            try {
+                writer.write();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            entries.put(key, count);
+            return count++;
+        }
+
+        void writeTo(final DataOutputStream dos) throws IOException {
+            dos.writeShort(count);
+            dos.write(bytes.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+/**
+ * A service which provides the codec of a single class. The annotation processor in the {@code processor} module
+ * generates one implementation for each class annotated with {@link GenerateCodec} and lists it in {@code
+ * META-INF/services/com.ledmington.serialization.CodecProvider}.
+ */
+public interface CodecProvider {
+    Class<?> type();
+
+    Codec<Object> codec();
+}
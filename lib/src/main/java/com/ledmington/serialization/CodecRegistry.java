@@ -0,0 +1,194 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An immutable table mapping classes to class codes and class codes to codecs. A registry is built once and can be
+ * shared by any number of Serializers and Deserializers on any number of threads, so that creating them costs no
+ * setup at all.
+ *
+ * <p>The default registry knows only the built-in types. Other types can be added with {@link #builder()}, each with
+ * its own codec and its own class code. Codecs of user types take precedence over the built-in ones, and they also
+ * apply to the subclasses of the registered type.
+ */
+public final class CodecRegistry {
+
+    /**
+     * Writes a value of a known class, without its class code.
+     */
+    @FunctionalInterface
+    interface Writer {
+        void write(Serializer ser, Object obj);
+    }
+
+    /**
+     * Reads a value whose class code has already been read.
+     */
+    @FunctionalInterface
+    interface Reader {
+        Object read(Deserializer des);
+    }
+
+    /**
+     * Advances past a value whose class code has already been read.
+     */
+    @FunctionalInterface
+    interface Skipper {
+        void skip(Deserializer des);
+    }
+
+    private static final CodecRegistry DEFAULT = new Builder().build();
+
+    /**
+     * Returns the registry of the built-in types, which is used by default.
+     */
+    public static CodecRegistry defaultRegistry() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns a builder of a new registry, which already contains the built-in types.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * A mutable, not thread-safe builder of a {@link CodecRegistry}.
+     */
+    public static final class Builder {
+        private final Writer[] writers = Serializer.builtinWriters();
+        private final Reader[] readers = Deserializer.builtinReaders();
+        private final Skipper[] skippers = Deserializer.builtinSkippers();
+        // user types, by class code
+        private final Class<?>[] types = new Class<?>[256];
+
+        private Builder() {}
+
+        /**
+         * Registers the codec of the given type, with the given class code. The code must not be used by any other
+         * type, including the built-in ones.
+         */
+        public <T> Builder register(final Class<T> type, final byte code, final Codec<T> codec) {
+            Objects.requireNonNull(type);
+            Objects.requireNonNull(codec);
+            if (code == ClassCodes.REFERENCE || code == ClassCodes.HOMOGENEOUS || readers[code & 0xff] != null) {
+                throw new IllegalArgumentException(String.format("Class code 0x%02x is already used.", code));
+            }
+            if (Arrays.asList(types).contains(type)) {
+                throw new IllegalArgumentException(String.format("Type %s is already registered.", type.getName()));
+            }
+            types[code & 0xff] = type;
+            writers[code & 0xff] = (ser, obj) -> codec.write(ser, type.cast(obj));
+            readers[code & 0xff] = codec::read;
+            skippers[code & 0xff] = codec::skip;
+            return this;
+        }
+
+        /**
+         * Registers the given record class with the given class code, so that its instances are written with the
+         * code instead of the name of the class. Its components are written as usual, and skipping an instance does
+         * not build it.
+         */
+        public <T extends Record> Builder register(final Class<T> type, final byte code) {
+            @SuppressWarnings("unchecked")
+            final Codec<T> codec = (Codec<T>) (Codec<?>) RecordCodec.of(type);
+            register(type, code, codec);
+            final Class<?>[] components = RecordCodec.componentTypes(type);
+            skippers[code & 0xff] = des -> des.skipComponents(components);
+            return this;
+        }
+
+        public CodecRegistry build() {
+            return new CodecRegistry(this);
+        }
+    }
+
+    private final Writer[] writers;
+    private final Reader[] readers;
+    private final Skipper[] skippers;
+    // user types, by class code
+    private final Class<?>[] userTypes;
+    private final boolean hasUserTypes;
+
+    private final ClassValue<Integer> cache = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(final Class<?> type) {
+            if (hasUserTypes) {
+                // exact matches first, then the subclasses in order of class code
+                for (int i = 0; i < userTypes.length; i++) {
+                    if (userTypes[i] == type) {
+                        return i;
+                    }
+                }
+                for (int i = 0; i < userTypes.length; i++) {
+                    if (userTypes[i] != null && userTypes[i].isAssignableFrom(type)) {
+                        return i;
+                    }
+                }
+            }
+            final ClassCodes c = ClassCodes.fromClass(type);
+            return c == null ? -1 : c.getCode() & 0xff;
+        }
+    };
+
+    private CodecRegistry(final Builder builder) {
+        this.writers = builder.writers.clone();
+        this.readers = builder.readers.clone();
+        this.skippers = builder.skippers.clone();
+        this.userTypes = builder.types.clone();
+        this.hasUserTypes = Arrays.stream(userTypes).anyMatch(Objects::nonNull);
+    }
+
+    /**
+     * Returns the unsigned class code of the given class, or -1 if it has none.
+     */
+    int codeOf(final Class<?> type) {
+        return cache.get(type);
+    }
+
+    Writer writer(final int code) {
+        return writers[code];
+    }
+
+    /**
+     * Returns the reader of the given unsigned class code, or null if there is none.
+     */
+    Reader reader(final int code) {
+        return readers[code];
+    }
+
+    /**
+     * Returns the skipper of the given unsigned class code, or null if there is none.
+     */
+    Skipper skipper(final int code) {
+        return skippers[code];
+    }
+
+    /**
+     * Returns true if repeated values with the given unsigned class code are written as back-references when
+     * reference tracking is enabled. User types are always tracked by identity.
+     */
+    boolean isShareable(final int code) {
+        final ClassCodes c = ClassCodes.fromCode((byte) code);
+        return c == null || c.isShareable();
+    }
+}
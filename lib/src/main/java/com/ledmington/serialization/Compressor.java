@@ -0,0 +1,55 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+/**
+ * Compresses and decompresses independent blocks of bytes. When a Serializer has a compressor, its output is split
+ * in blocks which are compressed one at a time, so that they can be decompressed while streaming. Blocks which do
+ * not get smaller are stored uncompressed.
+ *
+ * @see Serializer#setCompressor(Compressor)
+ * @see Deserializer#setCompressor(Compressor)
+ */
+public interface Compressor {
+
+    /**
+     * Returns the largest number of bytes which compressing {@code length} bytes can produce.
+     */
+    int maxCompressedLength(int length);
+
+    /**
+     * Compresses the {@code srcLen} bytes of {@code src} starting at {@code srcOff} into {@code dst} starting at
+     * {@code dstOff}, where at least {@link #maxCompressedLength(int)} bytes are available. Returns the number of
+     * bytes written.
+     */
+    int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff);
+
+    /**
+     * Decompresses the {@code srcLen} bytes of {@code src} starting at {@code srcOff} into exactly {@code dstLen}
+     * bytes of {@code dst} starting at {@code dstOff}. Throws a RuntimeException if the input is corrupted.
+     */
+    void decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int dstLen);
+
+    /**
+     * Returns a new compressor using the LZ4 block format, which favours speed over compression ratio. Instances keep
+     * some state between calls and must not be shared between threads.
+     */
+    static Compressor lz4() {
+        return new Lz4Compressor();
+    }
+}
@@ -0,0 +1,259 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Reads a container written by a {@link ContainerWriter} or a {@link BatchSerializer}. Any object can be read in
+ * constant time through the index footer, and whole containers can be decoded in parallel, each task reading a range
+ * of consecutive frames.
+ *
+ * <p>A ContainerReader is not thread-safe, apart from {@link #readAll()} which uses multiple threads internally.
+ */
+public final class ContainerReader {
+
+    // the content of the container, split in windows of the same size apart from the last one
+    private final ByteBuffer[] windows;
+    private final long windowSize;
+    private final int count;
+    // position of the first offset in the footer
+    private final long indexStart;
+
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private CodecRegistry registry = CodecRegistry.defaultRegistry();
+    private boolean variableLengthEncoding = false;
+    private boolean referenceTracking = false;
+    private boolean frameChecksums = false;
+    private ClassLoader classLoader = null;
+
+    private ContainerReader(final ByteBuffer[] windows, final long windowSize, final long length) {
+        this.windows = windows;
+        this.windowSize = windowSize;
+        if (length < ContainerWriter.TRAILER_SIZE
+                || getInt(length - Integer.BYTES) != ContainerWriter.MAGIC) {
+            throw new IllegalArgumentException("Not a container: invalid magic number.");
+        }
+        final long n = getLong(length - ContainerWriter.TRAILER_SIZE);
+        if (n < 0L
+                || n > Integer.MAX_VALUE
+                || n * Long.BYTES > length - ContainerWriter.TRAILER_SIZE) {
+            throw new IllegalArgumentException(String.format("Invalid number of frames %d.", n));
+        }
+        this.count = (int) n;
+        this.indexStart = length - ContainerWriter.TRAILER_SIZE - n * Long.BYTES;
+    }
+
+    /**
+     * Creates a ContainerReader which reads the given array. The array is not copied.
+     */
+    public static ContainerReader from(final byte[] input) {
+        Objects.requireNonNull(input);
+        return new ContainerReader(new ByteBuffer[] {ByteBuffer.wrap(input)}, Math.max(1, input.length), input.length);
+    }
+
+    /**
+     * Creates a ContainerReader which reads the given file by mapping it in memory. Files larger than 2 GB are mapped
+     * in multiple windows.
+     */
+    public static ContainerReader map(final Path file) throws IOException {
+        return map(file, MappedWindows.MAX_WINDOW_SIZE);
+    }
+
+    static ContainerReader map(final Path file, final long windowSize) throws IOException {
+        final ByteBuffer[] windows = MappedWindows.map(file, windowSize);
+        final long size = (windows.length - 1) * windowSize + windows[windows.length - 1].capacity();
+        return new ContainerReader(windows, windowSize, size);
+    }
+
+    /**
+     * Sets the pool running the decoding tasks of {@link #readAll()}. The common pool is used by default.
+     */
+    public void setPool(final ForkJoinPool pool) {
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    /**
+     * @see Deserializer#setCodecRegistry(CodecRegistry)
+     */
+    public void setCodecRegistry(final CodecRegistry registry) {
+        this.registry = Objects.requireNonNull(registry);
+    }
+
+    /**
+     * @see Deserializer#setVariableLengthEncoding(boolean)
+     */
+    public void setVariableLengthEncoding(final boolean enabled) {
+        this.variableLengthEncoding = enabled;
+    }
+
+    /**
+     * @see Deserializer#setReferenceTracking(boolean)
+     */
+    public void setReferenceTracking(final boolean enabled) {
+        this.referenceTracking = enabled;
+    }
+
+    /**
+     * @see Deserializer#setClassLoader(ClassLoader)
+     */
+    public void setClassLoader(final ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Enables or disables the verification of the checksums of frames, which must match the setting of the
+     * ContainerWriter or BatchSerializer which produced the container. Corrupted frames are rejected with an
+     * exception instead of being decoded. Disabled by default.
+     *
+     * @see ContainerWriter#setFrameChecksums(boolean)
+     */
+    public void setFrameChecksums(final boolean enabled) {
+        this.frameChecksums = enabled;
+    }
+
+    /**
+     * Returns the number of objects in the container.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Reads the object with the given index, without reading any other frame.
+     */
+    public Object read(final int index) {
+        Objects.checkIndex(index, count);
+        return deserializer(index, index + 1).readFrame();
+    }
+
+    /**
+     * Reads the objects with index from {@code from}, inclusive, to {@code to}, exclusive.
+     */
+    public List<Object> read(final int from, final int to) {
+        Objects.checkFromToIndex(from, to, count);
+        return Arrays.asList(decode(from, to));
+    }
+
+    /**
+     * Reads all the objects in the container, splitting the frames among the tasks of the pool.
+     */
+    public List<Object> readAll() {
+        final int chunk = Chunks.size(count, pool);
+        if (count <= chunk) {
+            return read(0, count);
+        }
+        final List<ForkJoinTask<Object[]>> tasks = new ArrayList<>();
+        for (int from = 0; from < count; from += chunk) {
+            final int start = from;
+            final int end = Math.min(count, from + chunk);
+            tasks.add(pool.submit(() -> decode(start, end)));
+        }
+        final List<Object> result = new ArrayList<>(count);
+        for (final ForkJoinTask<Object[]> t : tasks) {
+            result.addAll(Arrays.asList(t.join()));
+        }
+        return result;
+    }
+
+    private Object[] decode(final int from, final int to) {
+        final Object[] result = new Object[to - from];
+        if (result.length == 0) {
+            return result;
+        }
+        // frames are contiguous, so a single Deserializer reads the whole range
+        final Deserializer des = deserializer(from, to);
+        for (int i = 0; i < result.length; i++) {
+            result[i] = des.readFrame();
+        }
+        return result;
+    }
+
+    /**
+     * Returns a Deserializer reading the frames with index from {@code from}, inclusive, to {@code to}, exclusive.
+     */
+    private Deserializer deserializer(final int from, final int to) {
+        final long start = offset(from);
+        final long end = to == count ? indexStart : offset(to);
+        if (start < 0L || end > indexStart || start >= end) {
+            throw new IllegalStateException(String.format("Invalid frame offsets %d and %d.", start, end));
+        }
+        final ByteBuffer[] slices = slices(start, end);
+        final Deserializer des = slices.length == 1 ? Deserializer.from(slices[0]) : Deserializer.fromBuffers(slices);
+        des.setCodecRegistry(registry);
+        des.setVariableLengthEncoding(variableLengthEncoding);
+        des.setReferenceTracking(referenceTracking);
+        des.setFrameChecksums(frameChecksums);
+        des.setClassLoader(classLoader);
+        return des;
+    }
+
+    private long offset(final int index) {
+        return getLong(indexStart + (long) index * Long.BYTES);
+    }
+
+    /**
+     * Returns the parts of the windows covering the bytes from {@code start}, inclusive, to {@code end}, exclusive.
+     */
+    private ByteBuffer[] slices(final long start, final long end) {
+        final int first = (int) (start / windowSize);
+        final int last = (int) ((end - 1L) / windowSize);
+        final ByteBuffer[] slices = new ByteBuffer[last - first + 1];
+        for (int w = first; w <= last; w++) {
+            final long base = w * windowSize;
+            final int from = (int) (Math.max(start, base) - base);
+            final int to = (int) (Math.min(end, base + windows[w].capacity()) - base);
+            slices[w - first] = windows[w].slice(from, to - from);
+        }
+        return slices;
+    }
+
+    private long getLong(final long position) {
+        final int w = (int) (position / windowSize);
+        final long base = w * windowSize;
+        if (position + Long.BYTES <= base + windows[w].capacity()) {
+            return windows[w].getLong((int) (position - base));
+        }
+        // the value spans two windows
+        long v = 0L;
+        for (final ByteBuffer bb : slices(position, position + Long.BYTES)) {
+            while (bb.hasRemaining()) {
+                v = (v << 8) | (bb.get() & 0xffL);
+            }
+        }
+        return v;
+    }
+
+    private int getInt(final long position) {
+        int v = 0;
+        for (final ByteBuffer bb : slices(position, position + Integer.BYTES)) {
+            while (bb.hasRemaining()) {
+                v = (v << 8) | (bb.get() & 0xff);
+            }
+        }
+        return v;
+    }
+}
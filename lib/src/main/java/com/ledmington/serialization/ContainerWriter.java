@@ -0,0 +1,159 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Writes a sequence of objects as a container which can be read with random access by a {@link ContainerReader}.
+ *
+ * <p>A container is made of one frame for each object, followed by an index footer. A frame is the length of the
+ * object in bytes as a fixed-width int, followed by the object as written by {@link Serializer#write(Object)}. The
+ * footer holds the offset of each frame from the start of the container as a fixed-width long, then the number of
+ * frames as a fixed-width long and lastly a magic number. Back-references never cross frames, so that each frame can
+ * be read on its own.
+ */
+public final class ContainerWriter {
+
+    // "JSCF"
+    static final int MAGIC = 0x4a534346;
+    // number of frames and magic number
+    static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+
+    private final WritableByteChannel out;
+    // reused for every frame
+    private final Serializer frame = new Serializer();
+    private long[] offsets = new long[16];
+    private int count = 0;
+    private long written = 0L;
+    private boolean finished = false;
+
+    private ContainerWriter(final WritableByteChannel out) {
+        this.out = out;
+    }
+
+    /**
+     * Creates a ContainerWriter which writes to the given stream. The stream is never closed.
+     */
+    public static ContainerWriter to(final OutputStream out) {
+        return to(Channels.newChannel(Objects.requireNonNull(out)));
+    }
+
+    /**
+     * Creates a ContainerWriter which writes to the given channel. The channel must be in blocking mode and it is
+     * never closed.
+     */
+    public static ContainerWriter to(final WritableByteChannel out) {
+        return new ContainerWriter(Objects.requireNonNull(out));
+    }
+
+    /**
+     * @see Serializer#setCodecRegistry(CodecRegistry)
+     */
+    public void setCodecRegistry(final CodecRegistry registry) {
+        frame.setCodecRegistry(registry);
+    }
+
+    /**
+     * @see Serializer#setVariableLengthEncoding(boolean)
+     */
+    public void setVariableLengthEncoding(final boolean enabled) {
+        frame.setVariableLengthEncoding(enabled);
+    }
+
+    /**
+     * Enables or disables reference tracking inside each frame.
+     *
+     * @see Serializer#setReferenceTracking(boolean)
+     */
+    public void setReferenceTracking(final boolean enabled) {
+        frame.setReferenceTracking(enabled);
+    }
+
+    /**
+     * Enables or disables the checksums of frames. When enabled, each frame is followed by the CRC32C of its length
+     * and its content as a fixed int, so that corrupted frames are detected as such instead of being decoded.
+     * Disabled by default.
+     *
+     * <p>The container can only be read back by a ContainerReader with the same setting.
+     */
+    public void setFrameChecksums(final boolean enabled) {
+        frame.setFrameChecksums(enabled);
+    }
+
+    /**
+     * Writes the given object as a new frame.
+     */
+    public void write(final Object obj) {
+        assertNotFinished();
+        frame.reset();
+        frame.writeFrame(obj);
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count++] = written;
+        written += writeFully(frame.toByteBuffer());
+    }
+
+    /**
+     * Writes the index footer. No more objects can be written afterwards.
+     */
+    public void finish() {
+        assertNotFinished();
+        finished = true;
+        writeFully(footer(offsets, count));
+    }
+
+    private void assertNotFinished() {
+        if (finished) {
+            throw new IllegalStateException("This container has already been finished.");
+        }
+    }
+
+    private long writeFully(final ByteBuffer bb) {
+        final long n = bb.remaining();
+        try {
+            while (bb.hasRemaining()) {
+                out.write(bb);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return n;
+    }
+
+    /**
+     * Returns the index footer of a container with the given frame offsets.
+     */
+    static ByteBuffer footer(final long[] offsets, final int count) {
+        final ByteBuffer bb = ByteBuffer.allocate(Math.addExact(Math.multiplyExact(count, Long.BYTES), TRAILER_SIZE));
+        for (int i = 0; i < count; i++) {
+            bb.putLong(offsets[i]);
+        }
+        bb.putLong(count);
+        bb.putInt(MAGIC);
+        return bb.flip();
+    }
+}
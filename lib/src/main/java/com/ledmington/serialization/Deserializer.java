@@ -17,60 +17,1030 @@
 */
 package com.ledmington.serialization;
 
-import java.io.ByteArrayInputStream;
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.function.Supplier;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32C;
 
 public final class Deserializer {
-    private final ByteArrayInputStream bais;
-    private final Map<Class<?>, Supplier<Object>> deserializers = new HashMap<>();
+    private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle DIRECT_SHORT =
+            MethodHandles.byteBufferViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle DIRECT_INT =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle DIRECT_LONG =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final byte[] EMPTY = new byte[0];
+    // when streaming, lengths can't be checked against the input before reading it: containers start at most this
+    // large and grow only as their contents actually arrive
+    private static final int MAX_INITIAL_CAPACITY = 1 << 16;
+    private static final int MAX_CHUNK_SIZE = 1 << 20;
+    private static final BulkReader<char[]> CHARS = (bb, a, off, len) -> bb.asCharBuffer().get(a, off, len);
+
+    private byte[] buf;
+    private int pos;
+    private int limit;
+    // when not null, the buffer is refilled from the source every time it runs out of bytes
+    private ByteSource source;
+    // when not null, pos and limit are positions of this direct buffer, which is read in place instead of the buffer
+    private ByteBuffer direct = null;
+    // when not null, the direct buffers read in place: the buffer holds only the values spanning two of them
+    private Windows windows = null;
+    private boolean variableLengthEncoding = false;
+    // when not null, every shareable value read is appended, so that back-references can be resolved
+    private List<Object> references = null;
+    private CodecRegistry registry = CodecRegistry.defaultRegistry();
+    // the record classes defined so far in the current stream, by index
+    private List<Class<?>> recordTypes = new ArrayList<>();
+    // when not null, resolves the names of records without a build-time codec
+    private ClassLoader classLoader = null;
+    // when not null, the source is a BlockCompression.Input decompressing the actual input
+    private Compressor compressor = null;
+    // the decompressing source, the reader of in-memory input and the buffer of the decompressed bytes, kept across
+    // resets so that reusing a Deserializer does not allocate
+    private BlockCompression.Input blocks = null;
+    private ArraySource compressedArray = null;
+    private byte[] decompressed = null;
+    // when not null, every frame is followed by its checksum
+    private CRC32C checksum = null;
+    // when not negative, the start of the bytes of the current frame not yet counted nor added to the checksum
+    private int frameFrom = -1;
+    // the bytes of the current frame read before frameFrom
+    private long frameRead = 0L;
+    // walks the buffer on behalf of the views, without moving this Deserializer
+    private Deserializer cursor = null;
+    // true if this Deserializer is the cursor of the views of another one
+    private boolean viewCursor = false;
 
     public Deserializer(final byte[] input) {
+        this(input, 0, Objects.requireNonNull(input).length);
+    }
+
+    /**
+     * Creates a Deserializer which reads the {@code length} bytes of the given array starting at {@code offset}. The
+     * array is not copied.
+     */
+    public Deserializer(final byte[] input, final int offset, final int length) {
+        this(checkSlice(input, offset, length), offset, offset + length, null);
+    }
+
+    /**
+     * Makes this Deserializer read the given array from the beginning, keeping all the settings, so that it can be
+     * reused without allocating. A Deserializer created from a stream stops reading from it.
+     */
+    public void reset(final byte[] input) {
+        reset(input, 0, Objects.requireNonNull(input).length);
+    }
+
+    /**
+     * Same as {@link #reset(byte[])}, but reads only the {@code length} bytes starting at {@code offset}.
+     */
+    public void reset(final byte[] input, final int offset, final int length) {
+        this.buf = checkSlice(input, offset, length);
+        this.pos = offset;
+        this.limit = offset + length;
+        this.source = null;
+        this.direct = null;
+        this.windows = null;
+        if (references != null) {
+            references.clear();
+        }
+        recordTypes.clear();
+        if (compressor != null) {
+            decompress();
+        }
+    }
+
+    private static byte[] checkSlice(final byte[] input, final int offset, final int length) {
         Objects.requireNonNull(input);
-        if (input.length == 0) {
+        Objects.checkFromIndexSize(offset, length, input.length);
+        if (length == 0) {
             throw new IllegalArgumentException("Input byte array can't be empty.");
         }
-        this.bais = new ByteArrayInputStream(input);
+        return input;
+    }
 
-        deserializers.put(Boolean.class, this::readBoolean);
-        deserializers.put(Byte.class, this::readByte);
-        deserializers.put(Short.class, this::readShort);
-        deserializers.put(Integer.class, this::readInt);
-        deserializers.put(Long.class, this::readLong);
-        deserializers.put(Float.class, this::readFloat);
-        deserializers.put(Double.class, this::readDouble);
-        deserializers.put(Character.class, this::readChar);
+    /**
+     * Creates a Deserializer which reads the remaining bytes of the given buffer in place: heap buffers through their
+     * array and direct ones at absolute positions, without copying them. The position of the given buffer is not
+     * modified.
+     */
+    public static Deserializer from(final ByteBuffer input) {
+        Objects.requireNonNull(input);
+        if (!input.hasRemaining()) {
+            throw new IllegalArgumentException("Input buffer can't be empty.");
+        }
+        if (input.hasArray()) {
+            final int offset = input.arrayOffset() + input.position();
+            return new Deserializer(input.array(), offset, offset + input.remaining(), null);
+        }
+        return fromBuffers(new ByteBuffer[] {input.slice()});
+    }
 
-        deserializers.put(Optional.class, () -> {
-            final byte b = readRaw();
+    /**
+     * Creates a Deserializer which reads the content of the given file by mapping it in memory, so that the bytes are
+     * decoded straight from the page cache of the operating system. Files larger than 2 GB are mapped in multiple
+     * windows, and only the values spanning two windows are copied into a small internal buffer.
+     */
+    public static Deserializer map(final Path file) throws IOException {
+        return map(file, MappedWindows.MAX_WINDOW_SIZE);
+    }
+
+    static Deserializer map(final Path file, final long windowSize) throws IOException {
+        final ByteBuffer[] windows = MappedWindows.map(file, windowSize);
+        if (!windows[0].hasRemaining()) {
+            throw new IllegalArgumentException("Input file can't be empty.");
+        }
+        return fromBuffers(windows);
+    }
+
+    /**
+     * Creates a Deserializer which reads the remaining bytes of the given buffers in place, one after the other. Only
+     * the values spanning two buffers are copied into the internal buffer.
+     */
+    static Deserializer fromBuffers(final ByteBuffer[] buffers) {
+        return new Deserializer(new Windows(buffers));
+    }
+
+    /**
+     * Creates a Deserializer which reads from the given stream through a fixed-size internal buffer. Values can be
+     * read as soon as their bytes arrive, without waiting for the whole stream. The stream is never closed by the
+     * Deserializer.
+     */
+    public static Deserializer from(final InputStream input) {
+        return from(input, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Same as {@link #from(InputStream)}, but with an internal buffer of the given size.
+     */
+    public static Deserializer from(final InputStream input, final int bufferSize) {
+        Objects.requireNonNull(input);
+        return new Deserializer(newFixedBuffer(bufferSize), 0, 0, input::read);
+    }
+
+    /**
+     * Creates a Deserializer which reads from the given channel through a fixed-size internal buffer. Values can be
+     * read as soon as their bytes arrive, without waiting for the whole stream. The channel must be in blocking mode
+     * and it is never closed by the Deserializer.
+     */
+    public static Deserializer from(final ReadableByteChannel input) {
+        return from(input, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Same as {@link #from(ReadableByteChannel)}, but with an internal buffer of the given size.
+     */
+    public static Deserializer from(final ReadableByteChannel input, final int bufferSize) {
+        Objects.requireNonNull(input);
+        return new Deserializer(
+                newFixedBuffer(bufferSize), 0, 0, (b, off, len) -> input.read(ByteBuffer.wrap(b, off, len)));
+    }
+
+    private static byte[] newFixedBuffer(final int bufferSize) {
+        // the buffer must be able to hold at least the largest primitive
+        if (bufferSize < Long.BYTES) {
+            throw new IllegalArgumentException(
+                    String.format("Buffer size must be at least %d bytes but was %d.", Long.BYTES, bufferSize));
+        }
+        return new byte[bufferSize];
+    }
+
+    private Deserializer(final byte[] buf, final int pos, final int limit, final ByteSource source) {
+        this.buf = buf;
+        this.pos = pos;
+        this.limit = limit;
+        this.source = source;
+    }
+
+    private Deserializer(final Windows windows) {
+        // the buffer is used only to join the values spanning two windows
+        this(new byte[DEFAULT_BUFFER_SIZE], 0, 0, windows);
+        this.windows = windows;
+    }
+
+    /**
+     * Returns the readers of the built-in types, indexed by class code.
+     */
+    static CodecRegistry.Reader[] builtinReaders() {
+        final CodecRegistry.Reader[] readers = new CodecRegistry.Reader[256];
+
+        register(readers, Boolean.class, Deserializer::readBoolean);
+        register(readers, Byte.class, Deserializer::readByte);
+        register(readers, Short.class, Deserializer::readShort);
+        register(readers, Integer.class, Deserializer::readInt);
+        register(readers, Long.class, Deserializer::readLong);
+        register(readers, Float.class, Deserializer::readFloat);
+        register(readers, Double.class, Deserializer::readDouble);
+        register(readers, Character.class, Deserializer::readChar);
+
+        register(readers, Optional.class, des -> {
+            final byte b = des.readRaw();
             if (b == 0x00) {
                 return Optional.empty();
             }
             if (b == (byte) 0xff) {
-                return Optional.of(read());
+                return Optional.of(des.read());
             }
             throw new InvalidOptionalException(b);
         });
 
-        deserializers.put(String.class, () -> {
-            final StringBuilder sb = new StringBuilder();
-            final int length = readInt();
-            for (int i = 0; i < length; i++) {
-                sb.append(readChar());
+        register(readers, String.class, Deserializer::readString);
+
+        register(readers, List.class, des -> {
+            final int size = des.readElementCount();
+            final List<Object> list = new ArrayList<>(des.initialCapacity(size));
+            for (int i = 0; i < size; i++) {
+                list.add(des.read());
+            }
+            return list;
+        });
+
+        register(readers, Set.class, des -> {
+            final int size = des.readElementCount();
+            final Set<Object> set = new LinkedHashSet<>(hashCapacity(des.initialCapacity(size)));
+            for (int i = 0; i < size; i++) {
+                set.add(des.read());
+            }
+            return set;
+        });
+
+        register(readers, Map.class, des -> {
+            final int size = des.readElementCount();
+            final Map<Object, Object> map = new LinkedHashMap<>(hashCapacity(des.initialCapacity(size)));
+            for (int i = 0; i < size; i++) {
+                final Object key = des.read();
+                map.put(key, des.read());
+            }
+            return map;
+        });
+
+        register(readers, Object[].class, des -> {
+            final int size = des.readElementCount();
+            Object[] arr = new Object[des.initialCapacity(size)];
+            for (int i = 0; i < size; i++) {
+                if (i == arr.length) {
+                    arr = grow(arr, size);
+                }
+                arr[i] = des.read();
             }
-            return sb.toString();
+            return arr;
         });
+
+        register(readers, byte[].class, des -> des.readBytes(des.readElementCount(Byte.BYTES)));
+        register(readers, boolean[].class, des -> des.readPrimitives(1, boolean[]::new, (bb, a, off, len) -> {
+            for (int i = 0; i < len; i++) {
+                a[off + i] = toBoolean(bb.get());
+            }
+        }));
+        register(readers, short[].class, des -> des.readPrimitives(Short.BYTES, short[]::new, (bb, a, off, len) -> bb
+                .asShortBuffer()
+                .get(a, off, len)));
+        register(readers, int[].class, des -> des.readPrimitives(Integer.BYTES, int[]::new, (bb, a, off, len) -> bb
+                .asIntBuffer()
+                .get(a, off, len)));
+        register(readers, long[].class, des -> des.readPrimitives(Long.BYTES, long[]::new, (bb, a, off, len) -> bb
+                .asLongBuffer()
+                .get(a, off, len)));
+        register(readers, float[].class, des -> des.readPrimitives(Float.BYTES, float[]::new, (bb, a, off, len) -> bb
+                .asFloatBuffer()
+                .get(a, off, len)));
+        register(readers, double[].class, des -> des.readPrimitives(Double.BYTES, double[]::new, (bb, a, off, len) -> bb
+                .asDoubleBuffer()
+                .get(a, off, len)));
+        register(readers, char[].class, des -> des.readPrimitives(Character.BYTES, char[]::new, CHARS));
+
+        register(readers, Record.class, des -> RecordCodec.of(des.readRecordType()).read(des));
+
+        return readers;
     }
 
-    private byte readRaw() {
-        int b = bais.read();
-        if (b == -1) {
+    private static void register(
+            final CodecRegistry.Reader[] readers, final Class<?> clazz, final CodecRegistry.Reader reader) {
+        readers[ClassCodes.fromClass(clazz).getCode() & 0xff] = reader;
+    }
+
+    /**
+     * Returns the skippers of the built-in types, indexed by unsigned class code.
+     */
+    static CodecRegistry.Skipper[] builtinSkippers() {
+        final CodecRegistry.Skipper[] skippers = new CodecRegistry.Skipper[256];
+
+        register(skippers, Boolean.class, des -> des.skipBytes(1));
+        register(skippers, Byte.class, des -> des.skipBytes(Byte.BYTES));
+        register(skippers, Short.class, Deserializer::readShort);
+        register(skippers, Integer.class, Deserializer::readInt);
+        register(skippers, Long.class, Deserializer::readLong);
+        register(skippers, Float.class, des -> des.skipBytes(Float.BYTES));
+        register(skippers, Double.class, des -> des.skipBytes(Double.BYTES));
+        register(skippers, Character.class, des -> des.skipBytes(Character.BYTES));
+
+        register(skippers, Optional.class, des -> {
+            final byte b = des.readRaw();
+            if (b == (byte) 0xff) {
+                des.skip();
+            } else if (b != 0x00) {
+                throw new InvalidOptionalException(b);
+            }
+        });
+
+        register(skippers, String.class, Deserializer::skipString);
+
+        register(skippers, List.class, des -> des.skip(des.readLength()));
+        register(skippers, Set.class, des -> des.skip(des.readLength()));
+        register(skippers, Map.class, des -> {
+            final int size = des.readLength();
+            for (int i = 0; i < size; i++) {
+                des.skip(2);
+            }
+        });
+        register(skippers, Object[].class, des -> des.skip(des.readLength()));
+
+        register(skippers, byte[].class, des -> des.skipBytes(des.readLength()));
+        register(skippers, boolean[].class, des -> des.skipBytes(des.readLength()));
+        register(skippers, short[].class, des -> des.skipBytes((long) des.readLength() * Short.BYTES));
+        register(skippers, int[].class, des -> des.skipBytes((long) des.readLength() * Integer.BYTES));
+        register(skippers, long[].class, des -> des.skipBytes((long) des.readLength() * Long.BYTES));
+        register(skippers, float[].class, des -> des.skipBytes((long) des.readLength() * Float.BYTES));
+        register(skippers, double[].class, des -> des.skipBytes((long) des.readLength() * Double.BYTES));
+        register(skippers, char[].class, des -> des.skipBytes((long) des.readLength() * Character.BYTES));
+
+        register(
+                skippers, Record.class, des -> des.skipComponents(RecordCodec.componentTypes(des.readRecordType())));
+
+        return skippers;
+    }
+
+    private static void register(
+            final CodecRegistry.Skipper[] skippers, final Class<?> clazz, final CodecRegistry.Skipper skipper) {
+        skippers[ClassCodes.fromClass(clazz).getCode() & 0xff] = skipper;
+    }
+
+    /**
+     * Sets the registry used to find the codec of each class code. It must map class codes to the same codecs as the
+     * registry of the Serializer which produced the data.
+     *
+     * @see Serializer#setCodecRegistry(CodecRegistry)
+     */
+    public void setCodecRegistry(final CodecRegistry registry) {
+        this.registry = Objects.requireNonNull(registry);
+    }
+
+    public CodecRegistry getCodecRegistry() {
+        return registry;
+    }
+
+    /**
+     * Sets the class loader used to find the record classes named in the input, or null to disable it. Since the
+     * names come from the input, this must only be done for trusted input: by default, only records with a codec
+     * generated at build time can be read by name, while other records must be registered in the {@link
+     * CodecRegistry} on both sides.
+     *
+     * @see CodecRegistry.Builder#register(Class, byte)
+     */
+    public void setClassLoader(final ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    public ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    /**
+     * Enables or disables the variable-length encoding. Must match the setting of the Serializer which produced the
+     * data.
+     *
+     * @see Serializer#setVariableLengthEncoding(boolean)
+     */
+    public void setVariableLengthEncoding(final boolean enabled) {
+        this.variableLengthEncoding = enabled;
+    }
+
+    public boolean isVariableLengthEncoding() {
+        return variableLengthEncoding;
+    }
+
+    /**
+     * Decompresses the input with the given compressor, or disables decompression if null. The input is then read
+     * one block at a time through an internal buffer, even when it is entirely in memory.
+     *
+     * <p>Must be called before reading anything, and it must match the compressor of the Serializer which produced
+     * the data.
+     *
+     * @see Serializer#setCompressor(Compressor)
+     */
+    public void setCompressor(final Compressor compressor) {
+        if (this.compressor != null) {
+            // back to the compressed input
+            source = blocks.source();
+            pos = 0;
+            limit = 0;
+        } else if (direct != null) {
+            // the compressed blocks are read through the buffer
+            direct.position(pos);
+            direct = null;
+            pos = 0;
+            limit = 0;
+        }
+        this.compressor = compressor;
+        this.blocks = compressor == null ? null : new BlockCompression.Input(compressor);
+        if (compressor != null) {
+            decompress();
+        }
+    }
+
+    public Compressor getCompressor() {
+        return compressor;
+    }
+
+    /**
+     * Drops the input and everything read from it, keeping the settings and the internal buffers, so that an idle
+     * Deserializer does not keep the caller's data reachable. It can't read anything until it is reset.
+     */
+    void clear() {
+        buf = EMPTY;
+        pos = 0;
+        limit = 0;
+        source = null;
+        direct = null;
+        windows = null;
+        if (references != null) {
+            references.clear();
+        }
+        recordTypes.clear();
+        if (compressedArray != null) {
+            compressedArray.reset(EMPTY, 0, 0);
+        }
+        if (blocks != null) {
+            blocks.reset(null);
+        }
+        if (cursor != null) {
+            // the views share the input too
+            cursor.clear();
+        }
+    }
+
+    /**
+     * Enables or disables the verification of the checksums of the frames read by {@link #readFrame()}. Frames which
+     * fit in the buffer are verified before being decoded, while larger frames of streaming Deserializers are
+     * verified right after. Only containers are read as frames, so the setting is exposed by {@link
+     * ContainerReader#setFrameChecksums(boolean)} rather than by this class.
+     */
+    void setFrameChecksums(final boolean enabled) {
+        this.checksum = enabled ? new CRC32C() : null;
+    }
+
+    boolean isFrameChecksums() {
+        return checksum != null;
+    }
+
+    /**
+     * Makes the current input the source of compressed blocks.
+     */
+    private void decompress() {
+        if (source == null) {
+            if (compressedArray == null) {
+                compressedArray = new ArraySource();
+                decompressed = new byte[DEFAULT_BUFFER_SIZE];
+            }
+            compressedArray.reset(buf, pos, limit);
+            source = compressedArray;
+            buf = decompressed;
+            pos = 0;
+            limit = 0;
+        }
+        blocks.reset(source);
+        source = blocks;
+    }
+
+    /**
+     * Reads a slice of an array.
+     */
+    private static final class ArraySource implements ByteSource {
+        private byte[] input;
+        private int pos;
+        private int limit;
+
+        void reset(final byte[] input, final int pos, final int limit) {
+            this.input = input;
+            this.pos = pos;
+            this.limit = limit;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (pos == limit) {
+                return -1;
+            }
+            final int n = Math.min(len, limit - pos);
+            System.arraycopy(input, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+    }
+
+    /**
+     * Reads a sequence of buffers, one after the other.
+     */
+    private static final class Windows implements ByteSource {
+        private final ByteBuffer[] buffers;
+        private int current = 0;
+
+        Windows(final ByteBuffer[] buffers) {
+            this.buffers = buffers;
+        }
+
+        /**
+         * Returns the first buffer with remaining bytes, or null if there are none.
+         */
+        ByteBuffer next() {
+            while (current < buffers.length && !buffers[current].hasRemaining()) {
+                current++;
+            }
+            return current == buffers.length ? null : buffers[current];
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            final ByteBuffer bb = next();
+            if (bb == null) {
+                return -1;
+            }
+            final int n = Math.min(len, bb.remaining());
+            bb.get(b, off, n);
+            return n;
+        }
+    }
+
+    /**
+     * Ensures that at least {@code n} more bytes can be read from the buffer.
+     */
+    private void need(final int n) {
+        if (limit - pos < n) {
+            fill(n);
+        }
+    }
+
+    private void fill(final int n) {
+        if (!tryFill(n)) {
             throw new IllegalStateException("Can't read if the stream is terminated.");
         }
-        return (byte) (b & 0xff);
+    }
+
+    /**
+     * Refills the buffer until at least {@code n} bytes are available. Returns false if the source terminated before.
+     */
+    private boolean tryFill(final int n) {
+        if (source == null) {
+            return false;
+        }
+        if (frameFrom >= 0) {
+            // the bytes of the frame read so far are about to be discarded
+            frameRead += pos - frameFrom;
+            if (checksum != null) {
+                updateChecksum(frameFrom, pos - frameFrom);
+            }
+        }
+        final boolean filled = source == windows ? nextWindow(n) : refill(n, buf.length);
+        if (frameFrom >= 0) {
+            frameFrom = pos;
+        }
+        return filled;
+    }
+
+    private boolean refill(final int n, final int max) {
+        // move the unread bytes at the beginning of the buffer, to make room for new ones
+        System.arraycopy(buf, pos, buf, 0, limit - pos);
+        limit -= pos;
+        pos = 0;
+        while (limit < n) {
+            final int r;
+            try {
+                r = source.read(buf, limit, max - limit);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (r == -1) {
+                return false;
+            }
+            limit += r;
+        }
+        return true;
+    }
+
+    /**
+     * Moves to the next window if it holds at least {@code n} bytes, otherwise copies into the buffer only the
+     * {@code n} bytes of the value spanning the two windows.
+     */
+    private boolean nextWindow(final int n) {
+        if (direct != null) {
+            direct.position(pos);
+            direct = null;
+            pos = 0;
+            limit = 0;
+        }
+        if (pos == limit) {
+            final ByteBuffer next = windows.next();
+            if (next == null) {
+                return false;
+            }
+            if (next.remaining() >= n) {
+                direct = next;
+                pos = next.position();
+                limit = next.limit();
+                return true;
+            }
+        }
+        return refill(n, n);
+    }
+
+    private void updateChecksum(final int from, final int length) {
+        if (direct != null) {
+            checksum.update(direct.slice(from, length));
+        } else {
+            checksum.update(buf, from, length);
+        }
+    }
+
+    /**
+     * Checks whether there are more bytes to read. For streaming Deserializers, this may block waiting for the next
+     * byte to arrive.
+     */
+    public boolean hasRemaining() {
+        return pos < limit || tryFill(1);
+    }
+
+    /**
+     * Reads the given number of bytes into a new array.
+     */
+    private byte[] readBytes(final int length) {
+        byte[] dst = new byte[source == null ? length : Math.min(length, MAX_CHUNK_SIZE)];
+        int off = 0;
+        while (off < length) {
+            if (off == dst.length) {
+                // grow only once the previous chunk has been filled by actual input
+                dst = Arrays.copyOf(dst, (int) Math.min(length, 2L * dst.length));
+            }
+            if (pos == limit) {
+                fill(1);
+            }
+            final int n = Math.min(dst.length - off, limit - pos);
+            if (direct != null) {
+                direct.get(pos, dst, off, n);
+            } else {
+                System.arraycopy(buf, pos, dst, off, n);
+            }
+            pos += n;
+            off += n;
+        }
+        return dst;
+    }
+
+    /**
+     * Advances past the given number of bytes, refilling the buffer as needed.
+     */
+    private void skipBytes(final long length) {
+        long left = length;
+        while (left > 0) {
+            if (pos == limit) {
+                fill(1);
+            }
+            final int n = (int) Math.min(left, limit - pos);
+            pos += n;
+            left -= n;
+        }
+    }
+
+    /**
+     * Reads the length of a variable-sized value.
+     */
+    int readLength() {
+        final int length = variableLengthEncoding ? readVarInt() : readFixedInt();
+        if (length < 0) {
+            throw new IllegalStateException(String.format("Invalid length %d.", length));
+        }
+        return length;
+    }
+
+    /**
+     * Reads the number of elements of a collection.
+     */
+    private int readElementCount() {
+        return readElementCount(1);
+    }
+
+    /**
+     * Reads the number of elements of a collection whose elements take at least {@code elementSize} bytes each.
+     */
+    private int readElementCount(final int elementSize) {
+        return checkElementCount(readLength(), elementSize);
+    }
+
+    private int checkElementCount(final int size, final int elementSize) {
+        // we can reject corrupted lengths before allocating anything
+        if (source == null && (long) size * elementSize > limit - pos) {
+            throw new IllegalStateException(String.format("Invalid length %d.", size));
+        }
+        return size;
+    }
+
+    /**
+     * Copies a slice of a big-endian ByteBuffer into a primitive array.
+     */
+    @FunctionalInterface
+    private interface BulkReader<A> {
+        void get(ByteBuffer bb, A arr, int off, int len);
+    }
+
+    /**
+     * Reads a primitive array of fixed-width elements. Elements are copied in bulk, as many as are available in the
+     * buffer at a time. When streaming, the array is allocated in bounded chunks, so that a corrupted length can't
+     * allocate more memory than the input actually holds.
+     */
+    private <A> A readPrimitives(final int elementSize, final IntFunction<A> allocator, final BulkReader<A> reader) {
+        return readPrimitives(readElementCount(elementSize), elementSize, allocator, reader);
+    }
+
+    private <A> A readPrimitives(
+            final int length, final int elementSize, final IntFunction<A> allocator, final BulkReader<A> reader) {
+        int capacity = source == null ? length : Math.min(length, MAX_CHUNK_SIZE / elementSize);
+        A arr = allocator.apply(capacity);
+        int i = 0;
+        while (i < length) {
+            if (i == capacity) {
+                capacity = (int) Math.min(length, 2L * capacity);
+                final A bigger = allocator.apply(capacity);
+                System.arraycopy(arr, 0, bigger, 0, i);
+                arr = bigger;
+            }
+            need(elementSize);
+            final int n = Math.min(capacity - i, (limit - pos) / elementSize);
+            reader.get(
+                    direct != null ? direct.slice(pos, n * elementSize) : ByteBuffer.wrap(buf, pos, n * elementSize),
+                    arr,
+                    i,
+                    n);
+            pos += n * elementSize;
+            i += n;
+        }
+        return arr;
+    }
+
+    /**
+     * Returns the initial capacity of a container with the given number of elements. When streaming, the length has
+     * not been checked against the input, so the capacity is bounded and the container grows as elements are read.
+     */
+    private int initialCapacity(final int size) {
+        return source == null ? size : Math.min(size, MAX_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Returns a copy of the given array, twice as large but not larger than {@code size}.
+     */
+    private static Object[] grow(final Object[] arr, final int size) {
+        return Arrays.copyOf(arr, (int) Math.min(size, 2L * arr.length));
+    }
+
+    /**
+     * Returns the initial capacity of a hash-based collection which can hold the given number of elements without
+     * rehashing, with the default load factor.
+     */
+    private static int hashCapacity(final int size) {
+        return (int) Math.ceil(size / 0.75);
+    }
+
+    /**
+     * Reads the class of a record, as written by the Serializer: either the index of a class already defined in the
+     * current stream, or the definition of a new one.
+     */
+    Class<?> readRecordType() {
+        final int v = readVarInt();
+        final int index = v >>> 1;
+        if (index < recordTypes.size()) {
+            final Class<?> type = recordTypes.get(index);
+            // the Serializer defines each class once, but the views walk again the definitions already read
+            if ((v & 1) != 0 && !(viewCursor && skipStringEquals(type.getName()))) {
+                throw new InvalidRecordTypeException(index);
+            }
+            return type;
+        }
+        if ((v & 1) == 0 || index != recordTypes.size()) {
+            throw new InvalidReferenceException(index, recordTypes.size());
+        }
+        final Class<?> type = resolveRecord(readString());
+        recordTypes.add(type);
+        return type;
+    }
+
+    private Class<?> resolveRecord(final String name) {
+        Class<?> type = RecordCodec.provided(name);
+        if (type == null) {
+            if (classLoader == null) {
+                throw new IllegalArgumentException(String.format(
+                        "Record class %s is not allowed: register it in the CodecRegistry or set a class loader.",
+                        name));
+            }
+            try {
+                // the class is not initialized until we know that it is a record
+                type = Class.forName(name, false, classLoader);
+            } catch (final ClassNotFoundException e) {
+                throw new IllegalArgumentException(String.format("Unknown record class %s.", name), e);
+            }
+        }
+        if (!type.isRecord()) {
+            throw new IllegalArgumentException(String.format("%s is not a record.", name));
+        }
+        return type;
+    }
+
+    private String readString() {
+        final byte encoding = readRaw();
+        final int length = readLength();
+        if (encoding == Serializer.STRING_LATIN1) {
+            return decode(length, StandardCharsets.ISO_8859_1);
+        }
+        if (encoding == Serializer.STRING_UTF8) {
+            return decode(length, StandardCharsets.UTF_8);
+        }
+        if (encoding == Serializer.STRING_UTF16) {
+            return new String(readPrimitives(
+                    checkElementCount(length, Character.BYTES), Character.BYTES, char[]::new, CHARS));
+        }
+        throw new InvalidStringEncodingException(encoding);
+    }
+
+    private void skipString() {
+        final byte encoding = readRaw();
+        final int length = readLength();
+        if (encoding == Serializer.STRING_LATIN1 || encoding == Serializer.STRING_UTF8) {
+            skipBytes(length);
+        } else if (encoding == Serializer.STRING_UTF16) {
+            skipBytes((long) length * Character.BYTES);
+        } else {
+            throw new InvalidStringEncodingException(encoding);
+        }
+    }
+
+    /**
+     * Advances past a string and returns true if it has the same characters as the given one. The string is compared
+     * in place, without being decoded.
+     */
+    boolean skipStringEquals(final CharSequence s) {
+        final byte encoding = readRaw();
+        final int length = readLength();
+        final int start = pos;
+        if (encoding == Serializer.STRING_LATIN1) {
+            skipBytes(length);
+            if (length != s.length()) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if ((char) (buf[start + i] & 0xff) != s.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (encoding == Serializer.STRING_UTF16) {
+            skipBytes((long) length * Character.BYTES);
+            if (length != s.length()) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if ((char) (short) SHORT.get(buf, start + i * Character.BYTES) != s.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (encoding == Serializer.STRING_UTF8) {
+            skipBytes(length);
+            return utf8Equals(start, pos, s);
+        }
+        throw new InvalidStringEncodingException(encoding);
+    }
+
+    /**
+     * Decodes the UTF-8 bytes between {@code start} and {@code end} one code point at a time, comparing them with the
+     * characters of the given string. Malformed input never matches.
+     */
+    private boolean utf8Equals(final int start, final int end, final CharSequence s) {
+        int i = start;
+        int j = 0;
+        while (i < end) {
+            final int b = buf[i] & 0xff;
+            final int n;
+            int cp;
+            if (b < 0x80) {
+                n = 1;
+                cp = b;
+            } else if ((b >> 5) == 0x06) {
+                n = 2;
+                cp = b & 0x1f;
+            } else if ((b >> 4) == 0x0e) {
+                n = 3;
+                cp = b & 0x0f;
+            } else if ((b >> 3) == 0x1e) {
+                n = 4;
+                cp = b & 0x07;
+            } else {
+                return false;
+            }
+            if (i + n > end) {
+                return false;
+            }
+            for (int k = 1; k < n; k++) {
+                cp = (cp << 6) | (buf[i + k] & 0x3f);
+            }
+            i += n;
+            if (Character.isBmpCodePoint(cp)) {
+                if (j >= s.length() || s.charAt(j) != cp) {
+                    return false;
+                }
+                j++;
+            } else {
+                if (j + 1 >= s.length()
+                        || s.charAt(j) != Character.highSurrogate(cp)
+                        || s.charAt(j + 1) != Character.lowSurrogate(cp)) {
+                    return false;
+                }
+                j += 2;
+            }
+        }
+        return j == s.length();
+    }
+
+    /**
+     * Advances past the components of a record with the given types.
+     */
+    void skipComponents(final Class<?>[] types) {
+        for (final Class<?> type : types) {
+            skipComponent(type);
+        }
+    }
+
+    /**
+     * Advances past a record component of the given type, which is written without class code if primitive.
+     */
+    void skipComponent(final Class<?> type) {
+        if (type == boolean.class || type == byte.class) {
+            skipBytes(1);
+        } else if (type == short.class) {
+            readShort();
+        } else if (type == int.class) {
+            readInt();
+        } else if (type == long.class) {
+            readLong();
+        } else if (type == float.class) {
+            skipBytes(Float.BYTES);
+        } else if (type == double.class) {
+            skipBytes(Double.BYTES);
+        } else if (type == char.class) {
+            skipBytes(Character.BYTES);
+        } else {
+            skip();
+        }
+    }
+
+    private String decode(final int length, final Charset charset) {
+        if (source != null && length > buf.length) {
+            return new String(readBytes(length), charset);
+        }
+        need(length);
+        if (direct != null) {
+            return new String(readBytes(length), charset);
+        }
+        // decode directly from the buffer, without intermediate copies
+        final String s = new String(buf, pos, length, charset);
+        pos += length;
+        return s;
+    }
+
+    byte readRaw() {
+        need(1);
+        return direct != null ? direct.get(pos++) : buf[pos++];
     }
 
     public byte readByte() {
@@ -78,7 +1048,10 @@ public final class Deserializer {
     }
 
     public boolean readBoolean() {
-        final byte b = readRaw();
+        return toBoolean(readRaw());
+    }
+
+    private static boolean toBoolean(final byte b) {
         if (b == (byte) 0x00) {
             return false;
         }
@@ -89,64 +1062,409 @@ public final class Deserializer {
     }
 
     public short readShort() {
-        short s = (short) (readRaw() & 0xff);
-        s = (short) ((s << 8) | (readRaw() & 0xff));
-        return s;
+        if (variableLengthEncoding) {
+            final int v = readVarInt();
+            if ((v >>> Short.SIZE) != 0) {
+                throw new IllegalStateException(String.format("Malformed varint: %d does not fit in a short.", v));
+            }
+            return (short) ((v >>> 1) ^ -(v & 1));
+        }
+        return readFixedShort();
     }
 
     public int readInt() {
-        int i = (readRaw() & 0xff);
-        i = (i << 8) | (readRaw() & 0xff);
-        i = (i << 8) | (readRaw() & 0xff);
-        i = (i << 8) | (readRaw() & 0xff);
-        return i;
+        if (variableLengthEncoding) {
+            final int v = readVarInt();
+            return (v >>> 1) ^ -(v & 1);
+        }
+        return readFixedInt();
     }
 
     public long readLong() {
-        long l = (readRaw() & 0xff);
-        l = (l << 8) | (readRaw() & 0xff);
-        l = (l << 8) | (readRaw() & 0xff);
-        l = (l << 8) | (readRaw() & 0xff);
-        l = (l << 8) | (readRaw() & 0xff);
-        l = (l << 8) | (readRaw() & 0xff);
-        l = (l << 8) | (readRaw() & 0xff);
-        l = (l << 8) | (readRaw() & 0xff);
-        return l;
+        if (variableLengthEncoding) {
+            final long v = readVarLong();
+            return (v >>> 1) ^ -(v & 1L);
+        }
+        return readFixedLong();
     }
 
     public float readFloat() {
-        int i = (readRaw() & 0xff);
-        i = (i << 8) | (readRaw() & 0xff);
-        i = (i << 8) | (readRaw() & 0xff);
-        i = (i << 8) | (readRaw() & 0xff);
-        return Float.intBitsToFloat(i);
+        return Float.intBitsToFloat(readFixedInt());
     }
 
     public double readDouble() {
-        long l = (readRaw() & 0xff);
-        l = (l << 8) | (readRaw() & 0xff);
-        l = (l << 8) | (readRaw() & 0xff);
-        l = (l << 8) | (readRaw() & 0xff);
-        l = (l << 8) | (readRaw() & 0xff);
-        l = (l << 8) | (readRaw() & 0xff);
-        l = (l << 8) | (readRaw() & 0xff);
-        l = (l << 8) | (readRaw() & 0xff);
-        return Double.longBitsToDouble(l);
+        return Double.longBitsToDouble(readFixedLong());
+    }
+
+    private short readFixedShort() {
+        need(2);
+        final short s = direct != null ? (short) DIRECT_SHORT.get(direct, pos) : (short) SHORT.get(buf, pos);
+        pos += 2;
+        return s;
+    }
+
+    private int readFixedInt() {
+        need(4);
+        final int i = intAt(pos);
+        pos += 4;
+        return i;
+    }
+
+    private int intAt(final int index) {
+        return direct != null ? (int) DIRECT_INT.get(direct, index) : (int) INT.get(buf, index);
+    }
+
+    private long readFixedLong() {
+        need(8);
+        final long l = direct != null ? (long) DIRECT_LONG.get(direct, pos) : (long) LONG.get(buf, pos);
+        pos += 8;
+        return l;
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint.
+     */
+    private int readVarInt() {
+        int v = 0;
+        for (int shift = 0; shift < 28; shift += 7) {
+            final byte b = readRaw();
+            v |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return v;
+            }
+        }
+        // the fifth byte holds only the 4 highest bits
+        final byte b = readRaw();
+        if ((b & 0xf0) != 0) {
+            throw new IllegalStateException(String.format("Malformed varint: invalid last byte 0x%02x.", b));
+        }
+        return v | (b << 28);
+    }
+
+    private long readVarLong() {
+        long v = 0L;
+        for (int shift = 0; shift < 63; shift += 7) {
+            final byte b = readRaw();
+            v |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return v;
+            }
+        }
+        // the tenth byte holds only the highest bit
+        final byte b = readRaw();
+        if ((b & 0xfe) != 0) {
+            throw new IllegalStateException(String.format("Malformed varint: invalid last byte 0x%02x.", b));
+        }
+        return v | ((long) b << 63);
     }
 
     public char readChar() {
-        int c = (readRaw() & 0xff);
-        c = (c << 8) | (readRaw() & 0xff);
-        return (char) c;
+        return (char) readFixedShort();
+    }
+
+    /**
+     * Enables or disables reference tracking, which must match the setting of the Serializer which wrote the data.
+     * When enabled, back-references are resolved to the same instance they refer to. Disabled by default.
+     *
+     * @see Serializer#setReferenceTracking(boolean)
+     */
+    public void setReferenceTracking(final boolean enabled) {
+        if (!enabled) {
+            references = null;
+        } else if (references == null) {
+            references = new ArrayList<>();
+        }
     }
 
+    public boolean isReferenceTracking() {
+        return references != null;
+    }
+
+    /**
+     * Reads the next object, prefixed by its class code. Lists are read as {@link ArrayList}s, Sets as
+     * {@link LinkedHashSet}s and Maps as {@link LinkedHashMap}s, preserving the order in which elements were written.
+     */
     public Object read() {
         final byte classCode = readRaw();
-        final Class<?> clazz = ClassCodes.fromCode(classCode);
-        if (!deserializers.containsKey(clazz)) {
-            throw new IllegalArgumentException(
-                    String.format("No registered deserializer for the given class %s", clazz.getName()));
+        if (classCode == ClassCodes.REFERENCE && references != null) {
+            final int index = readVarInt();
+            if (index < 0 || index >= references.size()) {
+                throw new InvalidReferenceException(index, references.size());
+            }
+            return references.get(index);
+        }
+        if (classCode == ClassCodes.HOMOGENEOUS) {
+            final Object value = readHomogeneous();
+            if (references != null) {
+                references.add(value);
+            }
+            return value;
+        }
+        final Object value = reader(classCode).read(this);
+        if (references != null && registry.isShareable(classCode & 0xff)) {
+            references.add(value);
+        }
+        return value;
+    }
+
+    /**
+     * Advances past the next object without building it. Only the class codes and the length prefixes are decoded:
+     * for the built-in types nothing is allocated, except for the class names of records.
+     *
+     * <p>With reference tracking enabled, a later back-reference may point to any value in the skipped object, so it
+     * is read and discarded instead.
+     */
+    public void skip() {
+        if (references != null) {
+            read();
+            return;
+        }
+        final byte classCode = readRaw();
+        if (classCode == ClassCodes.HOMOGENEOUS) {
+            skipHomogeneous();
+            return;
+        }
+        skipper(classCode).skip(this);
+    }
+
+    /**
+     * Returns a view of the next object and advances past it, as {@link #skip()} does. The content of the object is
+     * decoded only when accessed through the view.
+     *
+     * <p>Views read the buffer of this Deserializer in place, so they are available only when the whole input is in
+     * memory, uncompressed and without reference tracking. They stay valid until this Deserializer is reset, and the
+     * views of the same Deserializer must not be used by multiple threads at the same time.
+     */
+    public View readView() {
+        if (source != null) {
+            throw new IllegalStateException("Views need the whole uncompressed input in memory.");
+        }
+        if (references != null) {
+            throw new IllegalStateException("Views are not supported with reference tracking.");
+        }
+        if (cursor == null) {
+            cursor = new Deserializer(buf, pos, limit, null);
+            cursor.viewCursor = true;
+        }
+        cursor.buf = buf;
+        cursor.limit = limit;
+        cursor.variableLengthEncoding = variableLengthEncoding;
+        cursor.registry = registry;
+        cursor.classLoader = classLoader;
+        // the records in the view may refer to classes defined before it
+        cursor.recordTypes = recordTypes;
+        final byte classCode = readRaw();
+        final View view = new View(cursor, classCode, pos);
+        if (classCode == ClassCodes.HOMOGENEOUS) {
+            skipHomogeneous();
+        } else {
+            skipper(classCode).skip(this);
+        }
+        return view;
+    }
+
+    int position() {
+        return pos;
+    }
+
+    /**
+     * Moves to the given position of the buffer. Used only by the in-memory cursor of the views.
+     */
+    void seek(final int position) {
+        this.pos = position;
+    }
+
+    /**
+     * Reads a value whose class code has already been read.
+     */
+    Object readBody(final byte classCode) {
+        return classCode == ClassCodes.HOMOGENEOUS ? readHomogeneous() : reader(classCode).read(this);
+    }
+
+    /**
+     * Advances past the next {@code n} objects, as {@link #skip()} does.
+     */
+    public void skip(final int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException(String.format("Invalid number of objects to skip %d.", n));
+        }
+        for (int i = 0; i < n; i++) {
+            skip();
+        }
+    }
+
+    /**
+     * Reads a frame written by {@link Serializer#writeFrame(Object)} and returns its object, which must take exactly
+     * the length declared by the frame.
+     */
+    Object readFrame() {
+        // back-references and record classes never cross frames
+        if (references != null) {
+            references.clear();
+        }
+        recordTypes.clear();
+        if (checksum != null) {
+            return readCheckedFrame();
+        }
+        final int length = readFixedInt();
+        if (length <= 0) {
+            throw new IllegalStateException(String.format("Invalid frame length %d.", length));
+        }
+        // the bytes are counted every time the buffer is refilled
+        startFrame();
+        final Object obj;
+        try {
+            obj = read();
+        } finally {
+            endFrame();
+        }
+        checkFrameLength(frameRead, length);
+        return obj;
+    }
+
+    private void startFrame() {
+        frameFrom = pos;
+        frameRead = 0L;
+    }
+
+    private void endFrame() {
+        frameRead += pos - frameFrom;
+        frameFrom = -1;
+    }
+
+    private static void checkFrameLength(final long actual, final long expected) {
+        if (actual != expected) {
+            throw new IllegalStateException(String.format("Invalid frame length %d.", expected));
+        }
+    }
+
+    private Object readCheckedFrame() {
+        need(Integer.BYTES);
+        final int length = intAt(pos);
+        if (length <= 0) {
+            throw new IllegalStateException(String.format("Invalid frame length %d.", length));
+        }
+        checksum.reset();
+        final long frameSize = Integer.BYTES + (long) length;
+        // windows are verified in place only if they hold the whole frame, so that it is never copied
+        final long room = source == null ? Long.MAX_VALUE : source == windows ? limit - pos : buf.length;
+        if (frameSize + Integer.BYTES <= room) {
+            need((int) Math.min(frameSize + Integer.BYTES, Integer.MAX_VALUE));
+            // the whole frame is in the buffer, so it can be verified at once before decoding it
+            final int start = pos;
+            updateChecksum(pos, (int) frameSize);
+            verifyChecksum(intAt(pos + (int) frameSize));
+            pos += Integer.BYTES;
+            final Object obj = read();
+            checkFrameLength(pos - start - Integer.BYTES, length);
+            pos += Integer.BYTES;
+            return obj;
+        }
+        // the checksum is updated and the bytes are counted every time the buffer is refilled
+        startFrame();
+        final Object obj;
+        try {
+            pos += Integer.BYTES;
+            obj = read();
+            updateChecksum(frameFrom, pos - frameFrom);
+        } finally {
+            endFrame();
+        }
+        verifyChecksum(readFixedInt());
+        checkFrameLength(frameRead - Integer.BYTES, length);
+        return obj;
+    }
+
+    private void verifyChecksum(final int expected) {
+        final int actual = (int) checksum.getValue();
+        if (actual != expected) {
+            throw new InvalidChecksumException(expected, actual);
+        }
+    }
+
+    private CodecRegistry.Reader reader(final byte classCode) {
+        final CodecRegistry.Reader reader = registry.reader(classCode & 0xff);
+        if (reader == null) {
+            throw new IllegalArgumentException(String.format("Unknown class code 0x%02x.", classCode));
+        }
+        return reader;
+    }
+
+    CodecRegistry.Skipper skipper(final byte classCode) {
+        final CodecRegistry.Skipper skipper = registry.skipper(classCode & 0xff);
+        if (skipper == null) {
+            throw new IllegalArgumentException(String.format("Unknown class code 0x%02x.", classCode));
+        }
+        return skipper;
+    }
+
+    /**
+     * Reads a container whose elements are written without their class code, each with the same reader.
+     */
+    private Object readHomogeneous() {
+        final byte containerCode = readRaw();
+        final ClassCodes container = ClassCodes.fromCode(containerCode);
+        if (container == null) {
+            throw new IllegalArgumentException(String.format("Class code 0x%02x is not a container.", containerCode));
+        }
+        final int size = readElementCount();
+        final CodecRegistry.Reader element = reader(readRaw());
+        switch (container) {
+            case LIST -> {
+                final List<Object> list = new ArrayList<>(initialCapacity(size));
+                for (int i = 0; i < size; i++) {
+                    list.add(element.read(this));
+                }
+                return list;
+            }
+            case SET -> {
+                final Set<Object> set = new LinkedHashSet<>(hashCapacity(initialCapacity(size)));
+                for (int i = 0; i < size; i++) {
+                    set.add(element.read(this));
+                }
+                return set;
+            }
+            case ARRAY -> {
+                Object[] arr = new Object[initialCapacity(size)];
+                for (int i = 0; i < size; i++) {
+                    if (i == arr.length) {
+                        arr = grow(arr, size);
+                    }
+                    arr[i] = element.read(this);
+                }
+                return arr;
+            }
+            case MAP -> {
+                final CodecRegistry.Reader value = reader(readRaw());
+                final Map<Object, Object> map = new LinkedHashMap<>(hashCapacity(initialCapacity(size)));
+                for (int i = 0; i < size; i++) {
+                    final Object key = element.read(this);
+                    map.put(key, value.read(this));
+                }
+                return map;
+            }
+            default -> throw new IllegalArgumentException(
+                    String.format("Class code 0x%02x is not a container.", containerCode));
+        }
+    }
+
+    private void skipHomogeneous() {
+        final byte containerCode = readRaw();
+        final ClassCodes container = ClassCodes.fromCode(containerCode);
+        if (container != ClassCodes.LIST
+                && container != ClassCodes.SET
+                && container != ClassCodes.ARRAY
+                && container != ClassCodes.MAP) {
+            throw new IllegalArgumentException(String.format("Class code 0x%02x is not a container.", containerCode));
+        }
+        final int size = readLength();
+        final CodecRegistry.Skipper element = skipper(readRaw());
+        final CodecRegistry.Skipper value = container == ClassCodes.MAP ? skipper(readRaw()) : null;
+        for (int i = 0; i < size; i++) {
+            element.skip(this);
+            if (value != null) {
+                value.skip(this);
+            }
         }
-        return deserializers.get(clazz).get();
     }
 }
@@ -1,5 +1,5 @@
 /*
-* java-serialization - Benchmarks
+* java-serialization - A simple, efficient and fast serialization library.
 * Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
 *
 * This program is free software: you can redistribute it and/or modify
@@ -15,10 +15,12 @@
 * You should have received a copy of the GNU General Public License
 * along with this program.  If not, see <http://www.gnu.org/licenses/>.
 */
-package com.ledmington;
+package com.ledmington.serialization;
 
-public final class Main {
-    public static final main(final String[] args) {
-        System.out.println("benchmarks");
+final class InvalidBlockException extends RuntimeException {
+    private static final long serialVersionUID = 3385072405166245871L;
+
+    public InvalidBlockException(final String reason) {
+        super(String.format("Invalid compressed block: %s.", reason));
     }
 }
@@ -0,0 +1,231 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * A pure-Java implementation of the LZ4 block format. The input is a sequence of literal runs, each followed by a
+ * back-reference of at least 4 bytes to the previous 64 KB: candidate matches are found through a hash table of the
+ * 4-byte sequences already seen, and only the longest match at the first hit is used.
+ *
+ * <p>The hash table is kept between calls and never cleared: every candidate is checked against the current input,
+ * so stale entries only cost a missed match.
+ */
+final class Lz4Compressor implements Compressor {
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final int MIN_MATCH = 4;
+    // the last 5 bytes are always literals
+    private static final int LAST_LITERALS = 5;
+    // the last match must start at least 12 bytes before the end
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_DISTANCE = 65535;
+    private static final int HASH_LOG = 12;
+    // after this many misses in a row, the search starts skipping bytes
+    private static final int SKIP_TRIGGER = 6;
+    private static final int RUN_MASK = 0x0f;
+
+    private final int[] table = new int[1 << HASH_LOG];
+
+    Lz4Compressor() {}
+
+    @Override
+    public int maxCompressedLength(final int length) {
+        return length + length / 255 + 16;
+    }
+
+    private static int hash(final byte[] src, final int i) {
+        return ((int) INT.get(src, i) * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    @Override
+    public int compress(final byte[] src, final int srcOff, final int srcLen, final byte[] dst, final int dstOff) {
+        final int srcEnd = srcOff + srcLen;
+        final int matchLimit = srcEnd - LAST_LITERALS;
+        final int mfLimit = srcEnd - MF_LIMIT;
+        int anchor = srcOff;
+        int op = dstOff;
+        int ip = srcOff;
+        while (ip < mfLimit) {
+            final int h = hash(src, ip);
+            final int ref = table[h];
+            table[h] = ip;
+            if (ref < srcOff
+                    || ref >= ip
+                    || ip - ref > MAX_DISTANCE
+                    || (int) INT.get(src, ref) != (int) INT.get(src, ip)) {
+                ip += 1 + ((ip - anchor) >>> SKIP_TRIGGER);
+                continue;
+            }
+            // extend the match backwards, over the pending literals, and then forwards
+            int start = ip;
+            int m = ref;
+            while (start > anchor && m > srcOff && src[start - 1] == src[m - 1]) {
+                start--;
+                m--;
+            }
+            int end = ip + MIN_MATCH;
+            int r = ref + MIN_MATCH;
+            while (end < matchLimit && src[end] == src[r]) {
+                end++;
+                r++;
+            }
+            op = writeSequence(src, anchor, start - anchor, start - m, end - start, dst, op);
+            anchor = end;
+            ip = end;
+        }
+        return writeSequence(src, anchor, srcEnd - anchor, 0, 0, dst, op) - dstOff;
+    }
+
+    /**
+     * Writes a run of literals followed by a match, or only the literals if the match is empty. Returns the new
+     * position in the output.
+     */
+    private static int writeSequence(
+            final byte[] src,
+            final int literalsOff,
+            final int literals,
+            final int offset,
+            final int matchLength,
+            final byte[] dst,
+            final int dstOff) {
+        final int token = dstOff;
+        int op = dstOff + 1;
+        op = writeLength(literals, dst, op);
+        System.arraycopy(src, literalsOff, dst, op, literals);
+        op += literals;
+        int lengths = Math.min(literals, RUN_MASK) << 4;
+        if (matchLength > 0) {
+            dst[op++] = (byte) offset;
+            dst[op++] = (byte) (offset >>> 8);
+            op = writeLength(matchLength - MIN_MATCH, dst, op);
+            lengths |= Math.min(matchLength - MIN_MATCH, RUN_MASK);
+        }
+        dst[token] = (byte) lengths;
+        return op;
+    }
+
+    /**
+     * Writes the part of a length which does not fit in its 4 bits of the token, if any.
+     */
+    private static int writeLength(final int length, final byte[] dst, final int dstOff) {
+        if (length < RUN_MASK) {
+            return dstOff;
+        }
+        int op = dstOff;
+        int left = length - RUN_MASK;
+        while (left >= 255) {
+            dst[op++] = (byte) 255;
+            left -= 255;
+        }
+        dst[op++] = (byte) left;
+        return op;
+    }
+
+    @Override
+    public void decompress(
+            final byte[] src,
+            final int srcOff,
+            final int srcLen,
+            final byte[] dst,
+            final int dstOff,
+            final int dstLen) {
+        final int srcEnd = srcOff + srcLen;
+        final int dstEnd = dstOff + dstLen;
+        int ip = srcOff;
+        int op = dstOff;
+        while (true) {
+            if (ip >= srcEnd) {
+                throw new InvalidBlockException("missing token");
+            }
+            final int token = src[ip++] & 0xff;
+
+            int literals = token >>> 4;
+            if (literals == RUN_MASK) {
+                final long length = readLength(src, ip, srcEnd);
+                ip = (int) (length >>> 32);
+                literals += (int) length;
+            }
+            if (literals < 0 || literals > srcEnd - ip || literals > dstEnd - op) {
+                throw new InvalidBlockException("literals out of bounds");
+            }
+            System.arraycopy(src, ip, dst, op, literals);
+            ip += literals;
+            op += literals;
+            if (ip == srcEnd) {
+                break;
+            }
+
+            if (srcEnd - ip < 2) {
+                throw new InvalidBlockException("missing offset");
+            }
+            final int offset = (src[ip] & 0xff) | ((src[ip + 1] & 0xff) << 8);
+            ip += 2;
+            if (offset == 0 || offset > op - dstOff) {
+                throw new InvalidBlockException(String.format("offset %d out of bounds", offset));
+            }
+            int matchLength = token & RUN_MASK;
+            if (matchLength == RUN_MASK) {
+                final long length = readLength(src, ip, srcEnd);
+                ip = (int) (length >>> 32);
+                matchLength += (int) length;
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength < MIN_MATCH || matchLength > dstEnd - op) {
+                throw new InvalidBlockException("match out of bounds");
+            }
+            final int ref = op - offset;
+            if (offset >= matchLength) {
+                System.arraycopy(dst, ref, dst, op, matchLength);
+            } else {
+                // the match overlaps with itself, repeating the last offset bytes
+                for (int i = 0; i < matchLength; i++) {
+                    dst[op + i] = dst[ref + i];
+                }
+            }
+            op += matchLength;
+        }
+        if (op != dstEnd) {
+            throw new InvalidBlockException(String.format("expected %d bytes but were %d", dstLen, op - dstOff));
+        }
+    }
+
+    /**
+     * Reads the extension of a length starting at {@code ip}. Returns the new position in the upper 32 bits and the
+     * length in the lower ones.
+     */
+    private static long readLength(final byte[] src, final int ip, final int srcEnd) {
+        int i = ip;
+        int length = 0;
+        int b;
+        do {
+            if (i >= srcEnd) {
+                throw new InvalidBlockException("truncated length");
+            }
+            b = src[i++] & 0xff;
+            length += b;
+            if (length < 0) {
+                throw new InvalidBlockException("length overflow");
+            }
+        } while (b == 255);
+        return ((long) i << 32) | length;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Maps files in memory as a sequence of read-only windows.
+ */
+final class MappedWindows {
+
+    // a single mapping can't be larger than Integer.MAX_VALUE bytes
+    static final long MAX_WINDOW_SIZE = 1L << 30;
+
+    private MappedWindows() {}
+
+    /**
+     * Maps the given file in windows of the given size, apart from the last one which may be smaller. An empty file
+     * is mapped as a single empty window.
+     */
+    static ByteBuffer[] map(final Path file, final long windowSize) throws IOException {
+        Objects.requireNonNull(file);
+        // the file can be closed right after mapping it, since mappings stay valid until garbage-collected
+        try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = fc.size();
+            final ByteBuffer[] windows = new ByteBuffer[(int) Math.max(1L, (size + windowSize - 1L) / windowSize)];
+            for (int i = 0; i < windows.length; i++) {
+                final long offset = i * windowSize;
+                windows[i] = fc.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowSize, size - offset));
+            }
+            return windows;
+        }
+    }
+}
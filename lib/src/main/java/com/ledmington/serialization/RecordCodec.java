@@ -0,0 +1,245 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Serializes instances of a record class as the values of its components, in declaration order. Primitive
+ * components are written without class code, while all other components are written with {@link
+ * Serializer#write(Object)}.
+ *
+ * <p>Components are discovered through reflection only once per class: accessors and the canonical constructor are
+ * then invoked through cached MethodHandles.
+ *
+ * <p>Codecs generated at build time for classes annotated with {@link GenerateCodec} are loaded through {@link
+ * ServiceLoader} and always take precedence. Otherwise, if the system property {@code
+ * com.ledmington.serialization.generateCodecs} is set to {@code true}, {@link #of(Class)} returns a codec generated
+ * at runtime by {@link CodecGenerator} instead, and falls back to this class only when the record can't be accessed
+ * or when hidden classes are not supported. Any other failure of the generation is a bug and is not hidden.
+ */
+final class RecordCodec implements Codec<Object> {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final boolean GENERATE_CODECS = Boolean.getBoolean("com.ledmington.serialization.generateCodecs");
+
+    private static final ClassValue<Codec<Object>> byClass = new ClassValue<>() {
+        @Override
+        protected Codec<Object> computeValue(final Class<?> type) {
+            return create(type);
+        }
+    };
+
+    private static final ClassValue<Class<?>[]> componentTypes = new ClassValue<>() {
+        @Override
+        protected Class<?>[] computeValue(final Class<?> type) {
+            return Arrays.stream(type.getRecordComponents())
+                    .map(RecordComponent::getType)
+                    .toArray(Class<?>[]::new);
+        }
+    };
+
+    // codecs generated at build time
+    private static final Map<Class<?>, Codec<Object>> provided = new HashMap<>();
+    // the classes with a codec generated at build time, which can always be read by name
+    private static final Map<String, Class<?>> providedByName = new HashMap<>();
+
+    static {
+        for (final CodecProvider p : ServiceLoader.load(CodecProvider.class)) {
+            provided.put(p.type(), p.codec());
+            providedByName.put(p.type().getName(), p.type());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Codec<Object> create(final Class<?> type) {
+        final Codec<Object> codec = provided.get(type);
+        if (codec != null) {
+            return codec;
+        }
+        if (GENERATE_CODECS && type.isRecord()) {
+            try {
+                return (Codec<Object>) CodecGenerator.generate(type);
+            } catch (final IllegalAccessException | UnsupportedOperationException e) {
+                // the package is not open to this library, or the VM can't define hidden classes: fall back to
+                // MethodHandles
+            }
+        }
+        return new RecordCodec(type);
+    }
+
+    /**
+     * Returns the codec of the given record class.
+     */
+    static Codec<Object> of(final Class<?> type) {
+        return byClass.get(type);
+    }
+
+    /**
+     * Returns the record class with the given name which has a codec generated at build time, or null if there is
+     * none.
+     */
+    static Class<?> provided(final String name) {
+        return providedByName.get(name);
+    }
+
+    /**
+     * Returns the types of the components of the given record class, in declaration order.
+     */
+    static Class<?>[] componentTypes(final Class<?> type) {
+        return componentTypes.get(type);
+    }
+
+    @FunctionalInterface
+    private interface ComponentWriter {
+        void write(Serializer ser, Object record) throws Throwable;
+    }
+
+    @FunctionalInterface
+    private interface ComponentReader {
+        Object read(Deserializer des);
+    }
+
+    private final ComponentWriter[] writers;
+    private final ComponentReader[] readers;
+    // takes all the component values in an Object[] and returns the new record
+    private final MethodHandle constructor;
+
+    RecordCodec(final Class<?> type) {
+        if (!type.isRecord()) {
+            throw new IllegalArgumentException(String.format("%s is not a record.", type.getName()));
+        }
+        final RecordComponent[] components = type.getRecordComponents();
+        final Class<?>[] types = new Class<?>[components.length];
+        this.writers = new ComponentWriter[components.length];
+        this.readers = new ComponentReader[components.length];
+        try {
+            for (int i = 0; i < components.length; i++) {
+                types[i] = components[i].getType();
+                final Method accessor = components[i].getAccessor();
+                accessor.setAccessible(true);
+                final MethodHandle getter = LOOKUP.unreflect(accessor);
+                writers[i] = writer(types[i], getter);
+                readers[i] = reader(types[i]);
+            }
+            final Constructor<?> canonical = type.getDeclaredConstructor(types);
+            canonical.setAccessible(true);
+            this.constructor = LOOKUP.unreflectConstructor(canonical)
+                    .asType(MethodType.genericMethodType(components.length))
+                    .asSpreader(Object[].class, components.length);
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalArgumentException(String.format("Cannot serialize record %s.", type.getName()), e);
+        }
+    }
+
+    private static ComponentWriter writer(final Class<?> type, final MethodHandle getter) {
+        final MethodHandle mh =
+                getter.asType(MethodType.methodType(type.isPrimitive() ? type : Object.class, Object.class));
+        if (type == boolean.class) {
+            return (ser, r) -> ser.write((boolean) mh.invokeExact(r));
+        }
+        if (type == byte.class) {
+            return (ser, r) -> ser.write((byte) mh.invokeExact(r));
+        }
+        if (type == short.class) {
+            return (ser, r) -> ser.write((short) mh.invokeExact(r));
+        }
+        if (type == int.class) {
+            return (ser, r) -> ser.write((int) mh.invokeExact(r));
+        }
+        if (type == long.class) {
+            return (ser, r) -> ser.write((long) mh.invokeExact(r));
+        }
+        if (type == float.class) {
+            return (ser, r) -> ser.write((float) mh.invokeExact(r));
+        }
+        if (type == double.class) {
+            return (ser, r) -> ser.write((double) mh.invokeExact(r));
+        }
+        if (type == char.class) {
+            return (ser, r) -> ser.write((char) mh.invokeExact(r));
+        }
+        return (ser, r) -> ser.write((Object) mh.invokeExact(r));
+    }
+
+    private static ComponentReader reader(final Class<?> type) {
+        if (type == boolean.class) {
+            return Deserializer::readBoolean;
+        }
+        if (type == byte.class) {
+            return Deserializer::readByte;
+        }
+        if (type == short.class) {
+            return Deserializer::readShort;
+        }
+        if (type == int.class) {
+            return Deserializer::readInt;
+        }
+        if (type == long.class) {
+            return Deserializer::readLong;
+        }
+        if (type == float.class) {
+            return Deserializer::readFloat;
+        }
+        if (type == double.class) {
+            return Deserializer::readDouble;
+        }
+        if (type == char.class) {
+            return Deserializer::readChar;
+        }
+        return Deserializer::read;
+    }
+
+    @Override
+    public void write(final Serializer ser, final Object record) {
+        try {
+            for (final ComponentWriter w : writers) {
+                w.write(ser, record);
+            }
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    @Override
+    public Object read(final Deserializer des) {
+        final Object[] values = new Object[readers.length];
+        for (int i = 0; i < readers.length; i++) {
+            values[i] = readers[i].read(des);
+        }
+        try {
+            return constructor.invokeExact(values);
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
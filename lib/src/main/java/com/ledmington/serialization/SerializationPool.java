@@ -0,0 +1,111 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A bounded pool of reusable Serializers and Deserializers, which can be shared by any number of threads. Once the
+ * pool is warm, serializing and deserializing through it allocates nothing apart from the results.
+ *
+ * <p>The pool does not rely on ThreadLocals, so it does not grow with the number of threads and works just as well
+ * with short-lived or virtual threads. Instances keep their settings when they are released, so a pool should only
+ * hold instances configured the same way.
+ */
+public final class SerializationPool {
+
+    private final ArrayBlockingQueue<Serializer> serializers;
+    private final ArrayBlockingQueue<Deserializer> deserializers;
+
+    /**
+     * Creates a pool keeping at most {@code capacity} idle Serializers and as many idle Deserializers.
+     */
+    public SerializationPool(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(String.format("Capacity must be positive but was %d.", capacity));
+        }
+        this.serializers = new ArrayBlockingQueue<>(capacity);
+        this.deserializers = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Returns an empty Serializer, taken from the pool if there is one.
+     */
+    public Serializer borrowSerializer() {
+        final Serializer ser = serializers.poll();
+        return ser != null ? ser : new Serializer();
+    }
+
+    /**
+     * Resets the given Serializer and puts it back in the pool, unless the pool is full. It must not be used
+     * afterwards.
+     */
+    public void release(final Serializer ser) {
+        Objects.requireNonNull(ser);
+        ser.reset();
+        serializers.offer(ser);
+    }
+
+    /**
+     * Returns a Deserializer reading the given array, taken from the pool if there is one.
+     */
+    public Deserializer borrowDeserializer(final byte[] input) {
+        final Deserializer des = deserializers.poll();
+        if (des == null) {
+            return new Deserializer(input);
+        }
+        des.reset(input);
+        return des;
+    }
+
+    /**
+     * Drops the input of the given Deserializer and puts it back in the pool, unless the pool is full. It must not be
+     * used afterwards.
+     */
+    public void release(final Deserializer des) {
+        Objects.requireNonNull(des);
+        des.clear();
+        deserializers.offer(des);
+    }
+
+    /**
+     * Serializes the given object with a pooled Serializer.
+     */
+    public byte[] serialize(final Object obj) {
+        final Serializer ser = borrowSerializer();
+        try {
+            ser.write(obj);
+            return ser.toByteArray();
+        } finally {
+            release(ser);
+        }
+    }
+
+    /**
+     * Deserializes a single object from the given array with a pooled Deserializer.
+     */
+    public Object deserialize(final byte[] input) {
+        final Deserializer des = borrowDeserializer(input);
+        try {
+            return des.read();
+        } finally {
+            release(des);
+        }
+    }
+}
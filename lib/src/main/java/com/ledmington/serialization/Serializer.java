@@ -17,124 +17,1051 @@
 */
 package com.ledmington.serialization;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.function.Consumer;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.zip.CRC32C;
 
 public final class Serializer {
-    private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    private final Map<Class<?>, Consumer<Object>> serializers = new HashMap<>();
+    private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle DIRECT_SHORT =
+            MethodHandles.byteBufferViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle DIRECT_INT =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle DIRECT_LONG =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    // Strings are prefixed with one of these bytes, telling how their characters are encoded
+    static final byte STRING_LATIN1 = (byte) 0x00;
+    static final byte STRING_UTF8 = (byte) 0x01;
+    static final byte STRING_UTF16 = (byte) 0x02;
+    static final int MAX_VARINT_BYTES = 5;
+    static final int MAX_VARLONG_BYTES = 10;
+    // below this size, writing the code of the elements once does not save anything
+    private static final int MIN_HOMOGENEOUS_SIZE = 3;
+    // the code shared by the elements of an empty container
+    private static final int NO_CODE = -2;
+    // the index of the objects which are being written, while their contents are
+    private static final int IN_PROGRESS = -1;
+    private static final int DEFAULT_INITIAL_CAPACITY = 64;
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    // Some VMs reserve header words in arrays, so we stay slightly below Integer.MAX_VALUE
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private byte[] buf;
+    private int pos = 0;
+    // the index of the first byte of this Serializer, and the index past the last byte which can be written
+    private int start = 0;
+    private int end;
+    // the buffer given to to(ByteBuffer), if any
+    private final ByteBuffer output;
+    // when not null, bytes are written in place into the output: into its array if it has one, or at absolute
+    // positions of the direct buffer otherwise
+    private ByteBuffer inPlace = null;
+    private ByteBuffer direct = null;
+    // the index of the byte at position 0 of the output
+    private int offset = 0;
+    // when not null, the buffer has a fixed size and it is drained into the sink every time it fills up
+    private ByteSink sink;
+    // the sink given at construction, which receives the compressed blocks when compression is enabled
+    private final ByteSink target;
+    private Compressor compressor = null;
+    // compresses the bytes of in-memory Serializers, reusing its buffers
+    private BlockCompression.InMemoryOutput compressed = null;
+    // when not null, every frame is followed by its checksum
+    private CRC32C checksum = null;
+    // number of bytes already drained into the sink
+    private long flushed = 0L;
+    private boolean variableLengthEncoding = false;
+    // when not null, repeated Strings (by equality) and other shareable objects (by identity) are written as
+    // back-references to their index in the order of first appearance
+    private Map<Object, Integer> strings = null;
+    private Map<Object, Integer> objects = null;
+    // the number of objects being written, which have a placeholder in place of their index
+    private int inProgress = 0;
+    private CodecRegistry registry = CodecRegistry.defaultRegistry();
+    // the indices of the record classes already written in the current stream
+    private final Map<Class<?>, Integer> recordTypes = new HashMap<>();
 
     public Serializer() {
-        serializers.put(Boolean.class, obj -> write(((Boolean) obj).equals(true)));
-        serializers.put(Byte.class, obj -> write(((Byte) obj).byteValue()));
-        serializers.put(Short.class, obj -> write(((Short) obj).shortValue()));
-        serializers.put(Integer.class, obj -> write(((Integer) obj).intValue()));
-        serializers.put(Long.class, obj -> write(((Long) obj).longValue()));
-        serializers.put(Float.class, obj -> write(((Float) obj).floatValue()));
-        serializers.put(Double.class, obj -> write(((Double) obj).doubleValue()));
-        serializers.put(Character.class, obj -> write(((Character) obj).charValue()));
-
-        serializers.put(Optional.class, obj -> {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public Serializer(final int initialCapacity) {
+        this(newBuffer(initialCapacity), null);
+    }
+
+    /**
+     * Creates a Serializer which writes into the given buffer, starting at its current position. Bytes are written in
+     * place, without any intermediate copy: into the backing array of heap buffers, and straight into the memory of
+     * direct ones. The position of the target is advanced past each value as soon as it is written.
+     *
+     * <p>If the target has not enough space left for a value, a {@link BufferOverflowException} is thrown and the
+     * position of the target is left after the last complete value.
+     */
+    public static Serializer to(final ByteBuffer target) {
+        Objects.requireNonNull(target);
+        if (target.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        return new Serializer(target);
+    }
+
+    /**
+     * Creates a Serializer which writes to the given stream through a fixed-size internal buffer, so that the memory
+     * used does not depend on the amount of bytes written. The buffer is written to the stream every time it fills up
+     * and on {@link #flush()}, which also flushes the stream, so {@code flush()} must be called once done writing. The
+     * stream is never closed by the Serializer.
+     */
+    public static Serializer to(final OutputStream out) {
+        return to(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Same as {@link #to(OutputStream)}, but with an internal buffer of the given size.
+     */
+    public static Serializer to(final OutputStream out, final int bufferSize) {
+        Objects.requireNonNull(out);
+        return new Serializer(newFixedBuffer(bufferSize), new ByteSink() {
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                out.flush();
+            }
+        });
+    }
+
+    /**
+     * Creates a Serializer which writes to the given channel through a fixed-size internal buffer, so that the memory
+     * used does not depend on the amount of bytes written. The buffer is written to the channel every time it fills
+     * up and on {@link #flush()}, so {@code flush()} must be called once done writing. The channel is never closed by
+     * the Serializer.
+     */
+    public static Serializer to(final WritableByteChannel out) {
+        return to(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Same as {@link #to(WritableByteChannel)}, but with an internal buffer of the given size.
+     */
+    public static Serializer to(final WritableByteChannel out, final int bufferSize) {
+        Objects.requireNonNull(out);
+        return new Serializer(newFixedBuffer(bufferSize), (b, off, len) -> {
+            final ByteBuffer bb = ByteBuffer.wrap(b, off, len);
+            while (bb.hasRemaining()) {
+                out.write(bb);
+            }
+        });
+    }
+
+    private static byte[] newFixedBuffer(final int bufferSize) {
+        // the buffer must be able to hold at least the largest encoded primitive
+        if (bufferSize < MAX_VARLONG_BYTES) {
+            throw new IllegalArgumentException(String.format(
+                    "Buffer size must be at least %d bytes but was %d.", MAX_VARLONG_BYTES, bufferSize));
+        }
+        return new byte[bufferSize];
+    }
+
+    private static byte[] newBuffer(final int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException(
+                    String.format("Initial capacity must be non-negative but was %d.", initialCapacity));
+        }
+        return new byte[initialCapacity];
+    }
+
+    private Serializer(final byte[] buf, final ByteSink sink) {
+        this.buf = buf;
+        this.end = buf.length;
+        this.sink = sink;
+        this.target = sink;
+        this.output = null;
+    }
+
+    private Serializer(final ByteBuffer output) {
+        this.sink = null;
+        this.target = null;
+        this.output = output;
+        writeInPlace();
+    }
+
+    /**
+     * Starts writing in place into the output, from its current position.
+     */
+    private void writeInPlace() {
+        inPlace = output;
+        if (output.hasArray()) {
+            buf = output.array();
+            direct = null;
+            offset = output.arrayOffset();
+        } else {
+            buf = null;
+            direct = output;
+            offset = 0;
+        }
+        pos = offset + output.position();
+        start = pos;
+        end = offset + output.limit();
+    }
+
+    /**
+     * Moves the position of the output past the bytes written in place so far.
+     */
+    private void advance() {
+        if (inPlace != null) {
+            inPlace.position(pos - offset);
+        }
+    }
+
+    /**
+     * Returns the writers of the built-in types, indexed by class code.
+     */
+    static CodecRegistry.Writer[] builtinWriters() {
+        final CodecRegistry.Writer[] writers = new CodecRegistry.Writer[256];
+
+        register(writers, Boolean.class, (ser, obj) -> ser.write(((Boolean) obj).equals(true)));
+        register(writers, Byte.class, (ser, obj) -> ser.write(((Byte) obj).byteValue()));
+        register(writers, Short.class, (ser, obj) -> ser.write(((Short) obj).shortValue()));
+        register(writers, Integer.class, (ser, obj) -> ser.write(((Integer) obj).intValue()));
+        register(writers, Long.class, (ser, obj) -> ser.write(((Long) obj).longValue()));
+        register(writers, Float.class, (ser, obj) -> ser.write(((Float) obj).floatValue()));
+        register(writers, Double.class, (ser, obj) -> ser.write(((Double) obj).doubleValue()));
+        register(writers, Character.class, (ser, obj) -> ser.write(((Character) obj).charValue()));
+
+        register(writers, Optional.class, (ser, obj) -> {
             final Optional<?> opt = (Optional<?>) obj;
             if (opt.isEmpty()) {
-                writeRaw((byte) 0x00);
+                ser.writeRaw((byte) 0x00);
             } else {
-                writeRaw((byte) 0xff);
-                write(opt.orElseThrow());
+                ser.writeRaw((byte) 0xff);
+                ser.write(opt.orElseThrow());
             }
         });
 
-        serializers.put(String.class, obj -> {
-            final String s = (String) obj;
-            write(s.length());
-            for (int i = 0; i < s.length(); i++) {
-                write(s.charAt(i));
+        register(writers, String.class, (ser, obj) -> ser.writeString((String) obj));
+
+        register(writers, List.class, (ser, obj) -> ser.writeList((List<?>) obj));
+        register(writers, Set.class, (ser, obj) -> ser.writeCollection((Set<?>) obj));
+        register(writers, Map.class, (ser, obj) -> ser.writeMap((Map<?, ?>) obj));
+        register(writers, Object[].class, (ser, obj) -> ser.writeArray((Object[]) obj));
+
+        register(writers, byte[].class, (ser, obj) -> {
+            final byte[] arr = (byte[]) obj;
+            ser.writeLength(arr.length);
+            ser.writeBytes(arr, 0, arr.length);
+        });
+        register(writers, boolean[].class, (ser, obj) -> {
+            final boolean[] arr = (boolean[]) obj;
+            ser.writeLength(arr.length);
+            for (final boolean b : arr) {
+                ser.write(b);
             }
         });
+        register(writers, short[].class, (ser, obj) -> {
+            final short[] arr = (short[]) obj;
+            ser.writePrimitives(arr, arr.length, Short.BYTES, (bb, a, off, len) -> bb.asShortBuffer()
+                    .put(a, off, len));
+        });
+        register(writers, int[].class, (ser, obj) -> {
+            final int[] arr = (int[]) obj;
+            ser.writePrimitives(arr, arr.length, Integer.BYTES, (bb, a, off, len) -> bb.asIntBuffer()
+                    .put(a, off, len));
+        });
+        register(writers, long[].class, (ser, obj) -> {
+            final long[] arr = (long[]) obj;
+            ser.writePrimitives(arr, arr.length, Long.BYTES, (bb, a, off, len) -> bb.asLongBuffer()
+                    .put(a, off, len));
+        });
+        register(writers, float[].class, (ser, obj) -> {
+            final float[] arr = (float[]) obj;
+            ser.writePrimitives(arr, arr.length, Float.BYTES, (bb, a, off, len) -> bb.asFloatBuffer()
+                    .put(a, off, len));
+        });
+        register(writers, double[].class, (ser, obj) -> {
+            final double[] arr = (double[]) obj;
+            ser.writePrimitives(arr, arr.length, Double.BYTES, (bb, a, off, len) -> bb.asDoubleBuffer()
+                    .put(a, off, len));
+        });
+        register(writers, char[].class, (ser, obj) -> {
+            final char[] arr = (char[]) obj;
+            ser.writePrimitives(arr, arr.length, Character.BYTES, (bb, a, off, len) -> bb.asCharBuffer()
+                    .put(a, off, len));
+        });
+
+        register(writers, Record.class, (ser, obj) -> {
+            ser.writeRecordType(obj.getClass());
+            RecordCodec.of(obj.getClass()).write(ser, obj);
+        });
+
+        return writers;
     }
 
+    private static void register(
+            final CodecRegistry.Writer[] writers, final Class<?> clazz, final CodecRegistry.Writer writer) {
+        writers[ClassCodes.fromClass(clazz).getCode() & 0xff] = writer;
+    }
+
+    /**
+     * Enables or disables the variable-length encoding. When enabled, shorts, ints and longs are written as zigzag
+     * LEB128 varints, taking from 1 byte for values close to zero up to 5 bytes for ints and 10 bytes for longs, and
+     * all the lengths of Strings and other variable-sized values are written as unsigned LEB128 varints. Disabled by
+     * default.
+     *
+     * <p>The data can only be read back by a Deserializer with the same setting.
+     */
+    public void setVariableLengthEncoding(final boolean enabled) {
+        this.variableLengthEncoding = enabled;
+    }
+
+    public boolean isVariableLengthEncoding() {
+        return variableLengthEncoding;
+    }
+
+    /**
+     * Enables or disables reference tracking. When enabled, the first occurrence of each String, collection, array or
+     * record is written normally, while the following ones are written as a back-reference: a single byte followed
+     * by a small varint index. The class names of records are shared in the same way. Strings are compared by
+     * equality, all other objects by identity, so that objects shared in the serialized graph are shared in the
+     * deserialized one as well. Disabled by default.
+     *
+     * <p>Objects must not be modified after being written, since repeated occurrences refer to the first one. The
+     * data can only be read back by a Deserializer with the same setting.
+     *
+     * <p>A value gets its index only once it has been written completely, so that the Deserializer can build it,
+     * immutable records included, before anything refers to it. As a consequence, cyclic graphs are not supported:
+     * writing a value which contains itself throws an {@link IllegalArgumentException}.
+     */
+    public void setReferenceTracking(final boolean enabled) {
+        if (!enabled) {
+            strings = null;
+            objects = null;
+        } else if (strings == null) {
+            strings = new HashMap<>();
+            objects = new IdentityHashMap<>();
+        }
+    }
+
+    public boolean isReferenceTracking() {
+        return strings != null;
+    }
+
+    /**
+     * Sets the registry used to find the codec of each object. The default registry only knows the built-in types.
+     *
+     * <p>The data can only be read back by a Deserializer with a registry which maps the same class codes to the
+     * same codecs.
+     */
+    public void setCodecRegistry(final CodecRegistry registry) {
+        this.registry = Objects.requireNonNull(registry);
+    }
+
+    public CodecRegistry getCodecRegistry() {
+        return registry;
+    }
+
+    /**
+     * Compresses the output with the given compressor, or disables compression if null. The output is split in
+     * blocks of at most 64 KB, and each block which does not get smaller is stored uncompressed. Serializers writing
+     * to a target collect whole blocks and cut a shorter one only on {@link #flush()}, while in-memory ones compress
+     * all their bytes in {@link #toByteArray()} and {@link #toByteBuffer()}. Disabled by default.
+     *
+     * <p>Must be called before writing anything. The data can only be read back by a Deserializer with the same
+     * compressor.
+     */
+    public void setCompressor(final Compressor compressor) {
+        if (size() != 0L) {
+            throw new IllegalStateException("The compressor must be set before writing anything.");
+        }
+        this.compressor = compressor;
+        if (output != null) {
+            if (compressor == null) {
+                sink = null;
+                writeInPlace();
+            } else {
+                // compressed blocks can't be written in place, so the uncompressed bytes are staged
+                inPlace = null;
+                direct = null;
+                buf = new byte[DEFAULT_BUFFER_SIZE];
+                pos = 0;
+                start = 0;
+                end = buf.length;
+                sink = new BlockCompression.Output(output::put, compressor);
+            }
+        } else if (target != null) {
+            this.sink = compressor == null ? target : new BlockCompression.Output(target, compressor);
+        } else {
+            this.compressed = compressor == null ? null : new BlockCompression.InMemoryOutput(compressor);
+        }
+    }
+
+    public Compressor getCompressor() {
+        return compressor;
+    }
+
+    /**
+     * Enables or disables the checksums of the frames written by {@link #writeFrame(Object)}. Only containers are
+     * written as frames, so the setting is exposed by {@link ContainerWriter#setFrameChecksums(boolean)} and {@link
+     * BatchSerializer#setFrameChecksums(boolean)} rather than by this class.
+     */
+    void setFrameChecksums(final boolean enabled) {
+        this.checksum = enabled ? new CRC32C() : null;
+    }
+
+    boolean isFrameChecksums() {
+        return checksum != null;
+    }
+
+    /**
+     * Discards all the bytes written so far, keeping the internal buffer with its current capacity and all the
+     * settings, so that this Serializer can be reused without allocating. Serializers writing to a sink discard the
+     * bytes which have not been flushed yet, while Serializers writing into a buffer move its position back to where
+     * they started.
+     */
+    public void reset() {
+        pos = start;
+        advance();
+        flushed = 0L;
+        if (strings != null) {
+            strings.clear();
+            objects.clear();
+            inProgress = 0;
+        }
+        recordTypes.clear();
+    }
+
+    /**
+     * Returns a copy of the bytes written so far, compressed if a compressor is set.
+     */
     public byte[] toByteArray() {
-        // here we do not flush and/or close the stream since
-        // it has no effect
-        return baos.toByteArray();
+        assertInMemory();
+        if (compressed != null) {
+            compressed.compress(buf, 0, pos);
+            return compressed.toByteArray();
+        }
+        return Arrays.copyOf(buf, pos);
+    }
+
+    /**
+     * Returns the bytes written so far without copying them: the returned buffer wraps the internal array of this
+     * Serializer, starting at position 0 and with its limit set to the number of bytes written. If a compressor is
+     * set, the returned buffer wraps an internal array with the compressed bytes instead.
+     *
+     * <p>The returned buffer is only valid until the next write on this Serializer, or until the next call to this
+     * method or to {@link #toByteArray()} when compressing.
+     */
+    public ByteBuffer toByteBuffer() {
+        assertInMemory();
+        if (compressed != null) {
+            compressed.compress(buf, 0, pos);
+            return compressed.toByteBuffer();
+        }
+        return ByteBuffer.wrap(buf, 0, pos);
+    }
+
+    private void assertInMemory() {
+        if (sink != null || output != null) {
+            throw new IllegalStateException("This Serializer writes to an external target.");
+        }
+    }
+
+    /**
+     * Returns the number of bytes written so far, before compression.
+     */
+    public long size() {
+        return flushed + pos - start;
+    }
+
+    /**
+     * Transfers all the buffered bytes to the target of this Serializer and then flushes the target, if it is a
+     * stream. Has no effect on in-memory Serializers and on Serializers writing in place into a buffer.
+     */
+    public void flush() {
+        if (sink == null) {
+            return;
+        }
+        drain();
+        try {
+            sink.flush();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Transfers all the buffered bytes to the sink, without flushing it.
+     */
+    private void drain() {
+        if (pos == 0) {
+            return;
+        }
+        try {
+            sink.write(buf, 0, pos);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        flushed += pos;
+        pos = 0;
+    }
+
+    /**
+     * Ensures that at least {@code n} more bytes can be written in the buffer.
+     */
+    private void ensureCapacity(final int n) {
+        if (end - pos < n) {
+            if (sink != null) {
+                drain();
+            } else if (inPlace != null) {
+                throw new BufferOverflowException();
+            } else {
+                grow(n);
+            }
+        }
+    }
+
+    private void grow(final int n) {
+        final int required = pos + n;
+        if (required < 0 || required > MAX_CAPACITY) {
+            throw new OutOfMemoryError(String.format("Cannot grow the buffer over %,d bytes.", MAX_CAPACITY));
+        }
+        // double the capacity, while always making room for at least the requested bytes
+        final int newCapacity = (int) Math.min(MAX_CAPACITY, Math.max((long) buf.length << 1, required));
+        buf = Arrays.copyOf(buf, newCapacity);
+        end = newCapacity;
+    }
+
+    private void writeBytes(final byte[] b, final int off, final int len) {
+        if (sink != null && len > end - pos) {
+            drain();
+            if (len >= buf.length) {
+                // too big to be buffered, so it goes straight to the sink
+                try {
+                    sink.write(b, off, len);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                flushed += len;
+                return;
+            }
+        }
+        ensureCapacity(len);
+        if (direct != null) {
+            direct.put(pos, b, off, len);
+        } else {
+            System.arraycopy(b, off, buf, pos, len);
+        }
+        pos += len;
+    }
+
+    /**
+     * Writes the length of a variable-sized value.
+     */
+    private void writeLength(final int length) {
+        if (variableLengthEncoding) {
+            // lengths are never negative, so there is no need for zigzag encoding
+            writeVarInt(length);
+        } else {
+            writeFixedInt(length);
+        }
+    }
+
+    /**
+     * Writes the given value as an unsigned LEB128 varint: 7 bits per byte, least significant group first, with the
+     * most significant bit of each byte telling whether more bytes follow.
+     */
+    private void writeVarInt(int v) {
+        if (end - pos < MAX_VARINT_BYTES) {
+            // near the end of a fixed buffer, the value may still fit in fewer bytes than the maximum
+            ensureCapacity((38 - Integer.numberOfLeadingZeros(v | 1)) / 7);
+        }
+        if (direct != null) {
+            while ((v & ~0x7f) != 0) {
+                direct.put(pos++, (byte) ((v & 0x7f) | 0x80));
+                v >>>= 7;
+            }
+            direct.put(pos++, (byte) v);
+            return;
+        }
+        while ((v & ~0x7f) != 0) {
+            buf[pos++] = (byte) ((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+    }
+
+    private void writeVarLong(long v) {
+        if (end - pos < MAX_VARLONG_BYTES) {
+            ensureCapacity((70 - Long.numberOfLeadingZeros(v | 1L)) / 7);
+        }
+        if (direct != null) {
+            while ((v & ~0x7fL) != 0L) {
+                direct.put(pos++, (byte) ((v & 0x7f) | 0x80));
+                v >>>= 7;
+            }
+            direct.put(pos++, (byte) v);
+            return;
+        }
+        while ((v & ~0x7fL) != 0L) {
+            buf[pos++] = (byte) ((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+    }
+
+    /**
+     * Writes the class of a record as an unsigned varint: the index of the class among the record classes of the
+     * current stream, shifted left by one. The lowest bit is set when the class appears for the first time, in which
+     * case the index is followed by the name of the class.
+     */
+    private void writeRecordType(final Class<?> type) {
+        final Integer index = recordTypes.get(type);
+        if (index != null) {
+            writeVarInt(index << 1);
+            return;
+        }
+        final int next = recordTypes.size();
+        recordTypes.put(type, next);
+        writeVarInt((next << 1) | 1);
+        writeString(type.getName());
+    }
+
+    private void writeString(final String s) {
+        final byte encoding = stringEncoding(s);
+        writeRaw(encoding);
+        if (encoding == STRING_UTF16) {
+            writeLength(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                write(s.charAt(i));
+            }
+            return;
+        }
+        final byte[] bytes =
+                s.getBytes(encoding == STRING_LATIN1 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+        writeLength(bytes.length);
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Returns the most compact encoding able to represent the given String.
+     */
+    private static byte stringEncoding(final String s) {
+        byte encoding = STRING_LATIN1;
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c <= 0xff) {
+                continue;
+            }
+            encoding = STRING_UTF8;
+            if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    i++;
+                } else {
+                    // UTF-8 can't represent unpaired surrogates
+                    return STRING_UTF16;
+                }
+            }
+        }
+        return encoding;
+    }
+
+    private void writeList(final List<?> list) {
+        if (!(list instanceof RandomAccess)) {
+            writeCollection(list);
+            return;
+        }
+        final int size = list.size();
+        writeLength(size);
+        for (int i = 0; i < size; i++) {
+            write(list.get(i));
+        }
+    }
+
+    private void writeCollection(final Collection<?> c) {
+        writeLength(c.size());
+        for (final Object obj : c) {
+            write(obj);
+        }
+    }
+
+    private void writeMap(final Map<?, ?> map) {
+        writeLength(map.size());
+        for (final Map.Entry<?, ?> e : map.entrySet()) {
+            write(e.getKey());
+            write(e.getValue());
+        }
+    }
+
+    private void writeArray(final Object[] arr) {
+        writeLength(arr.length);
+        for (final Object obj : arr) {
+            write(obj);
+        }
+    }
+
+    /**
+     * Copies a slice of a primitive array into a big-endian ByteBuffer.
+     */
+    @FunctionalInterface
+    private interface BulkWriter<A> {
+        void put(ByteBuffer bb, A arr, int off, int len);
+    }
+
+    /**
+     * Writes the length of the given primitive array followed by all its elements with fixed width, regardless of
+     * the variable-length encoding setting. Elements are copied in bulk, as many as fit in the buffer at a time.
+     */
+    private <A> void writePrimitives(
+            final A arr, final int length, final int elementSize, final BulkWriter<A> writer) {
+        writeLength(length);
+        if (sink == null) {
+            // in-memory serializers can hold the whole array at once
+            ensureCapacity((int) Math.min((long) length * elementSize, Integer.MAX_VALUE));
+        }
+        int i = 0;
+        while (i < length) {
+            ensureCapacity(elementSize);
+            final int n = Math.min(length - i, (end - pos) / elementSize);
+            writer.put(
+                    direct != null ? direct.slice(pos, n * elementSize) : ByteBuffer.wrap(buf, pos, n * elementSize),
+                    arr,
+                    i,
+                    n);
+            pos += n * elementSize;
+            i += n;
+        }
     }
 
     private void writeRaw(byte b) {
-        baos.write(b);
+        ensureCapacity(1);
+        if (direct != null) {
+            direct.put(pos++, b);
+        } else {
+            buf[pos++] = b;
+        }
     }
 
     public void write(byte b) {
         writeRaw(b);
+        advance();
     }
 
     public void write(boolean b) {
-        if (b) {
-            writeRaw((byte) 0xff);
-        } else {
-            writeRaw((byte) 0x00);
-        }
+        writeRaw(b ? (byte) 0xff : (byte) 0x00);
+        advance();
     }
 
     public void write(short s) {
-        writeRaw((byte) (s >> 8));
-        writeRaw((byte) (s & 0xff));
+        if (variableLengthEncoding) {
+            // zigzag encoding maps small negative values to small positive ones
+            writeVarInt((s << 1) ^ (s >> 15));
+        } else {
+            writeFixedShort(s);
+        }
+        advance();
     }
 
     public void write(int i) {
-        writeRaw((byte) (i >> 24));
-        writeRaw((byte) ((i >> 16) & 0xff));
-        writeRaw((byte) ((i >> 8) & 0xff));
-        writeRaw((byte) (i & 0xff));
+        if (variableLengthEncoding) {
+            writeVarInt((i << 1) ^ (i >> 31));
+        } else {
+            writeFixedInt(i);
+        }
+        advance();
     }
 
     public void write(long l) {
-        writeRaw((byte) (l >> 56));
-        writeRaw((byte) ((l >> 48) & 0xff));
-        writeRaw((byte) ((l >> 40) & 0xff));
-        writeRaw((byte) ((l >> 32) & 0xff));
-        writeRaw((byte) ((l >> 24) & 0xff));
-        writeRaw((byte) ((l >> 16) & 0xff));
-        writeRaw((byte) ((l >> 8) & 0xff));
-        writeRaw((byte) (l & 0xff));
+        if (variableLengthEncoding) {
+            writeVarLong((l << 1) ^ (l >> 63));
+        } else {
+            writeFixedLong(l);
+        }
+        advance();
     }
 
     public void write(float f) {
-        int i = Float.floatToIntBits(f);
-        writeRaw((byte) (i >> 24));
-        writeRaw((byte) ((i >> 16) & 0xff));
-        writeRaw((byte) ((i >> 8) & 0xff));
-        writeRaw((byte) (i & 0xff));
+        writeFixedInt(Float.floatToIntBits(f));
+        advance();
     }
 
     public void write(double d) {
-        long l = Double.doubleToLongBits(d);
-        writeRaw((byte) (l >> 56));
-        writeRaw((byte) ((l >> 48) & 0xff));
-        writeRaw((byte) ((l >> 40) & 0xff));
-        writeRaw((byte) ((l >> 32) & 0xff));
-        writeRaw((byte) ((l >> 24) & 0xff));
-        writeRaw((byte) ((l >> 16) & 0xff));
-        writeRaw((byte) ((l >> 8) & 0xff));
-        writeRaw((byte) (l & 0xff));
+        writeFixedLong(Double.doubleToLongBits(d));
+        advance();
     }
 
     public void write(char c) {
-        writeRaw((byte) (c >> 8));
-        writeRaw((byte) (c & 0xff));
+        writeFixedShort((short) c);
+        advance();
+    }
+
+    private void writeFixedShort(final short s) {
+        ensureCapacity(2);
+        if (direct != null) {
+            DIRECT_SHORT.set(direct, pos, s);
+        } else {
+            SHORT.set(buf, pos, s);
+        }
+        pos += 2;
+    }
+
+    private void writeFixedInt(final int i) {
+        ensureCapacity(4);
+        if (direct != null) {
+            DIRECT_INT.set(direct, pos, i);
+        } else {
+            INT.set(buf, pos, i);
+        }
+        pos += 4;
+    }
+
+    private void writeFixedLong(final long l) {
+        ensureCapacity(8);
+        if (direct != null) {
+            DIRECT_LONG.set(direct, pos, l);
+        } else {
+            LONG.set(buf, pos, l);
+        }
+        pos += 8;
     }
 
+    /**
+     * Writes the given object, prefixed by its class code. Lists, Sets, Maps and arrays of objects are accepted
+     * regardless of their implementation class, as long as all their elements can be serialized.
+     *
+     * <p>Records are written as their class name followed by their components in declaration order. They can be
+     * read back as long as each component is declared with a type which the deserialized value fits in (for example,
+     * {@code List} rather than {@code LinkedList}). Since the Deserializer resolves class names only when told to,
+     * the reading side also needs either a codec generated at build time for the record or a class loader set with
+     * {@link Deserializer#setClassLoader(ClassLoader)}; records registered in the {@link CodecRegistry} of both sides
+     * are written by class code instead, without their name.
+     */
     public void write(final Object obj) {
-        final Class<?> clazz = obj.getClass();
-        if (!serializers.containsKey(obj.getClass())) {
+        final int code = registry.codeOf(obj.getClass());
+        if (code < 0) {
             throw new IllegalArgumentException(String.format(
                     "Cannot serialize object with unknown class %s",
                     obj.getClass().getName()));
         }
-        final byte classCode = ClassCodes.fromClass(clazz);
-        writeRaw(classCode);
-        serializers.get(obj.getClass()).accept(obj);
+        if (strings != null && registry.isShareable(code)) {
+            writeShared(code, obj);
+        } else {
+            writeValue(code, obj);
+        }
+        advance();
+    }
+
+    /**
+     * Writes the given object as a frame: its length in bytes as a fixed-width int, followed by the object with its
+     * class code and, if enabled, by the checksum of both. Back-references and record classes never cross the
+     * boundaries of a frame, so that each frame can be read on its own.
+     */
+    void writeFrame(final Object obj) {
+        assertInMemory();
+        if (strings != null) {
+            strings.clear();
+            objects.clear();
+            inProgress = 0;
+        }
+        recordTypes.clear();
+        final int start = pos;
+        writeFixedInt(0);
+        write(obj);
+        INT.set(buf, start, pos - start - Integer.BYTES);
+        if (checksum != null) {
+            checksum.reset();
+            checksum.update(buf, start, pos - start);
+            writeFixedInt((int) checksum.getValue());
+        }
+    }
+
+    private void writeValue(final int code, final Object obj) {
+        final ClassCodes builtin = ClassCodes.fromCode((byte) code);
+        if (builtin != null) {
+            switch (builtin) {
+                case LIST, SET -> {
+                    final Collection<?> c = (Collection<?>) obj;
+                    final int element = c.size() >= MIN_HOMOGENEOUS_SIZE ? commonCode(c) : -1;
+                    if (element >= 0) {
+                        writeHomogeneous(code, c.size(), element);
+                        final CodecRegistry.Writer w = registry.writer(element);
+                        if (c instanceof List<?> list && list instanceof RandomAccess) {
+                            final int size = list.size();
+                            for (int i = 0; i < size; i++) {
+                                w.write(this, list.get(i));
+                            }
+                        } else {
+                            for (final Object e : c) {
+                                w.write(this, e);
+                            }
+                        }
+                        return;
+                    }
+                }
+                case ARRAY -> {
+                    final Object[] arr = (Object[]) obj;
+                    final int element = arr.length >= MIN_HOMOGENEOUS_SIZE ? commonCode(arr) : -1;
+                    if (element >= 0) {
+                        writeHomogeneous(code, arr.length, element);
+                        final CodecRegistry.Writer w = registry.writer(element);
+                        for (final Object e : arr) {
+                            w.write(this, e);
+                        }
+                        return;
+                    }
+                }
+                case MAP -> {
+                    final Map<?, ?> map = (Map<?, ?>) obj;
+                    if (map.size() >= MIN_HOMOGENEOUS_SIZE) {
+                        final int key = commonCode(map.keySet());
+                        final int value = key >= 0 ? commonCode(map.values()) : -1;
+                        if (value >= 0) {
+                            writeHomogeneous(code, map.size(), key);
+                            writeRaw((byte) value);
+                            final CodecRegistry.Writer kw = registry.writer(key);
+                            final CodecRegistry.Writer vw = registry.writer(value);
+                            for (final Map.Entry<?, ?> e : map.entrySet()) {
+                                kw.write(this, e.getKey());
+                                vw.write(this, e.getValue());
+                            }
+                            return;
+                        }
+                    }
+                }
+                default -> {}
+            }
+        }
+        writeRaw((byte) code);
+        registry.writer(code).write(this, obj);
+    }
+
+    private void writeHomogeneous(final int container, final int size, final int element) {
+        writeRaw(ClassCodes.HOMOGENEOUS);
+        writeRaw((byte) container);
+        writeLength(size);
+        writeRaw((byte) element);
+    }
+
+    /**
+     * Returns the class code shared by all the given elements, or -1 if there is none or if the elements must be
+     * written with their code to be tracked as references.
+     */
+    private int commonCode(final Collection<?> elements) {
+        if (elements instanceof List<?> list && list instanceof RandomAccess) {
+            final int size = list.size();
+            Class<?> last = null;
+            int common = NO_CODE;
+            for (int i = 0; i < size; i++) {
+                final Object e = list.get(i);
+                if (e == null) {
+                    return -1;
+                }
+                // many elements share the same class, so the lookup is done only when it changes
+                if (e.getClass() != last) {
+                    last = e.getClass();
+                    common = commonCode(common, last);
+                    if (common < 0) {
+                        return -1;
+                    }
+                }
+            }
+            return notShared(common);
+        }
+        Class<?> last = null;
+        int common = NO_CODE;
+        for (final Object e : elements) {
+            if (e == null) {
+                return -1;
+            }
+            if (e.getClass() != last) {
+                last = e.getClass();
+                common = commonCode(common, last);
+                if (common < 0) {
+                    return -1;
+                }
+            }
+        }
+        return notShared(common);
+    }
+
+    private int commonCode(final Object[] elements) {
+        Class<?> last = null;
+        int common = NO_CODE;
+        for (final Object e : elements) {
+            if (e == null) {
+                return -1;
+            }
+            if (e.getClass() != last) {
+                last = e.getClass();
+                common = commonCode(common, last);
+                if (common < 0) {
+                    return -1;
+                }
+            }
+        }
+        return notShared(common);
+    }
+
+    /**
+     * Returns the code of the given class if it is the same as the code shared so far, or -1 otherwise.
+     */
+    private int commonCode(final int common, final Class<?> type) {
+        final int code = registry.codeOf(type);
+        return (common == NO_CODE || code == common) ? code : -1;
+    }
+
+    /**
+     * Returns the given shared code, or -1 if the elements must be written with their code to be tracked as
+     * references.
+     */
+    private int notShared(final int common) {
+        return (common < 0 || (strings != null && registry.isShareable(common))) ? -1 : common;
+    }
+
+    private void writeShared(final int code, final Object obj) {
+        final boolean string = code == (ClassCodes.STRING.getCode() & 0xff);
+        final Map<Object, Integer> table = string ? strings : objects;
+        final Integer index = table.get(obj);
+        if (index != null) {
+            if (index == IN_PROGRESS) {
+                throw new IllegalArgumentException(String.format(
+                        "Cyclic object graphs are not supported: %s contains itself.", obj.getClass().getName()));
+            }
+            writeRaw(ClassCodes.REFERENCE);
+            writeVarInt(index);
+            return;
+        }
+        if (!string) {
+            // strings can't contain anything, while any other value may contain itself
+            objects.put(obj, IN_PROGRESS);
+            inProgress++;
+        }
+        writeValue(code, obj);
+        // indices are assigned once the value is complete, in the same order in which the Deserializer reads them
+        table.put(obj, strings.size() + objects.size() - inProgress);
+        if (!string) {
+            inProgress--;
+        }
     }
 }
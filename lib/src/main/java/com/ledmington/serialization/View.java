@@ -0,0 +1,252 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import java.lang.invoke.MethodType;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A lazy view of a serialized object, created by {@link Deserializer#readView()}. A view is just a position in the
+ * buffer: strings can be compared, and the elements of containers and the components of records can be reached,
+ * without decoding anything else. Only {@link #get()} builds the object.
+ *
+ * <p>Elements are found by skipping the ones before them, so reaching the i-th element of a container takes O(i)
+ * time.
+ */
+public final class View {
+
+    private final Deserializer cursor;
+    // the class code of the object, which is not part of the body
+    private final byte code;
+    // the position of the body of the object
+    private final int start;
+
+    View(final Deserializer cursor, final byte code, final int start) {
+        this.cursor = cursor;
+        this.code = code;
+        this.start = start;
+    }
+
+    public boolean isString() {
+        return code == ClassCodes.STRING.getCode();
+    }
+
+    public boolean isOptional() {
+        return code == ClassCodes.OPTIONAL.getCode();
+    }
+
+    /**
+     * Returns true if the object is a List, a Set or an array of objects.
+     */
+    public boolean isCollection() {
+        final byte c = containerCode();
+        return c == ClassCodes.LIST.getCode() || c == ClassCodes.SET.getCode() || c == ClassCodes.ARRAY.getCode();
+    }
+
+    public boolean isMap() {
+        return containerCode() == ClassCodes.MAP.getCode();
+    }
+
+    public boolean isRecord() {
+        return code == ClassCodes.RECORD.getCode();
+    }
+
+    private byte containerCode() {
+        if (code != ClassCodes.HOMOGENEOUS) {
+            return code;
+        }
+        cursor.seek(start);
+        return cursor.readRaw();
+    }
+
+    /**
+     * Decodes the whole object.
+     */
+    public Object get() {
+        cursor.seek(start);
+        return cursor.readBody(code);
+    }
+
+    /**
+     * Returns true if the object is a String with the same characters as the given one, without decoding it.
+     */
+    public boolean contentEquals(final CharSequence s) {
+        Objects.requireNonNull(s);
+        if (!isString()) {
+            return false;
+        }
+        cursor.seek(start);
+        return cursor.skipStringEquals(s);
+    }
+
+    /**
+     * Returns true if the object is a non-empty Optional.
+     */
+    public boolean isPresent() {
+        check(isOptional(), "an Optional");
+        cursor.seek(start);
+        final byte b = cursor.readRaw();
+        if (b == 0x00) {
+            return false;
+        }
+        if (b == (byte) 0xff) {
+            return true;
+        }
+        throw new InvalidOptionalException(b);
+    }
+
+    /**
+     * Returns a view of the value of a non-empty Optional.
+     */
+    public View value() {
+        if (!isPresent()) {
+            throw new NoSuchElementException("No value present.");
+        }
+        return next();
+    }
+
+    /**
+     * Returns the number of elements of a collection, or the number of entries of a map.
+     */
+    public int size() {
+        check(isCollection() || isMap(), "a collection or a map");
+        cursor.seek(start);
+        if (code == ClassCodes.HOMOGENEOUS) {
+            cursor.readRaw();
+        }
+        return cursor.readLength();
+    }
+
+    /**
+     * Returns a view of the element of a collection with the given index.
+     */
+    public View get(final int index) {
+        check(isCollection(), "a collection");
+        return element(Objects.checkIndex(index, size()), false);
+    }
+
+    /**
+     * Returns a view of the key of the entry of a map with the given index, in the order in which entries were
+     * written.
+     */
+    public View key(final int index) {
+        check(isMap(), "a map");
+        return element(2 * Objects.checkIndex(index, size()), true);
+    }
+
+    /**
+     * Returns a view of the value of the entry of a map with the given index, in the order in which entries were
+     * written.
+     */
+    public View value(final int index) {
+        check(isMap(), "a map");
+        return element(2 * Objects.checkIndex(index, size()) + 1, true);
+    }
+
+    /**
+     * Returns a view of the value mapped to the given String key, or null if there is none. Keys are compared in
+     * place, without decoding them.
+     */
+    public View get(final CharSequence key) {
+        Objects.requireNonNull(key);
+        check(isMap(), "a map");
+        final int size = size();
+        byte keyCode = 0;
+        byte valueCode = 0;
+        if (code == ClassCodes.HOMOGENEOUS) {
+            keyCode = cursor.readRaw();
+            valueCode = cursor.readRaw();
+        }
+        for (int i = 0; i < size; i++) {
+            final byte k = code == ClassCodes.HOMOGENEOUS ? keyCode : cursor.readRaw();
+            final boolean found;
+            if (k == ClassCodes.STRING.getCode()) {
+                found = cursor.skipStringEquals(key);
+            } else {
+                skip(k);
+                found = false;
+            }
+            final byte v = code == ClassCodes.HOMOGENEOUS ? valueCode : cursor.readRaw();
+            if (found) {
+                return new View(cursor, v, cursor.position());
+            }
+            skip(v);
+        }
+        return null;
+    }
+
+    /**
+     * Returns a view of the component of a record with the given index, in declaration order.
+     */
+    public View component(final int index) {
+        check(isRecord(), "a record");
+        cursor.seek(start);
+        final Class<?>[] types = RecordCodec.componentTypes(cursor.readRecordType());
+        Objects.checkIndex(index, types.length);
+        for (int i = 0; i < index; i++) {
+            cursor.skipComponent(types[i]);
+        }
+        if (types[index].isPrimitive()) {
+            // primitive components are written without class code, as the boxed values
+            final Class<?> boxed = MethodType.methodType(types[index]).wrap().returnType();
+            return new View(cursor, ClassCodes.fromClass(boxed).getCode(), cursor.position());
+        }
+        return next();
+    }
+
+    /**
+     * Returns a view of the element with the given index of a container, counting keys and values separately for
+     * maps. The caller must have checked the index.
+     */
+    private View element(final int index, final boolean map) {
+        cursor.seek(start);
+        if (code != ClassCodes.HOMOGENEOUS) {
+            cursor.readLength();
+            cursor.skip(index);
+            return next();
+        }
+        // the elements of homogeneous containers have no class code
+        cursor.readRaw();
+        cursor.readLength();
+        final byte keyCode = cursor.readRaw();
+        final byte valueCode = map ? cursor.readRaw() : keyCode;
+        for (int i = 0; i < index; i++) {
+            skip(i % 2 == 0 ? keyCode : valueCode);
+        }
+        return new View(cursor, index % 2 == 0 ? keyCode : valueCode, cursor.position());
+    }
+
+    /**
+     * Returns a view of the object at the position of the cursor, prefixed by its class code.
+     */
+    private View next() {
+        final byte c = cursor.readRaw();
+        return new View(cursor, c, cursor.position());
+    }
+
+    private void skip(final byte classCode) {
+        cursor.skipper(classCode).skip(cursor);
+    }
+
+    private void check(final boolean condition, final String expected) {
+        if (!condition) {
+            throw new IllegalStateException(String.format("Expected %s but was class code 0x%02x.", expected, code));
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public final class BatchSerializerTest {
+
+    private static final List<Object> BATCH = IntStream.range(0, 10_000)
+            .mapToObj(i -> switch (i % 4) {
+                case 0 -> i;
+                case 1 -> "value-" + i;
+                case 2 -> List.of((long) i, (long) i + 1, (long) i + 2);
+                default -> new int[] {i, -i};
+            })
+            .collect(Collectors.toList());
+
+    private static byte[] sequential(final List<?> objects) {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final ContainerWriter writer = ContainerWriter.to(baos);
+        for (final Object obj : objects) {
+            writer.write(obj);
+        }
+        writer.finish();
+        return baos.toByteArray();
+    }
+
+    private static byte[] parallel(final BatchSerializer batch, final List<?> objects) {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        batch.write(objects, baos);
+        return baos.toByteArray();
+    }
+
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 7, 1000, 20_000})
+    public void sameBytesAsSequential(final int chunkSize) {
+        final BatchSerializer batch = new BatchSerializer();
+        batch.setChunkSize(chunkSize);
+        assertArrayEquals(sequential(BATCH), parallel(batch, BATCH));
+    }
+
+    @Test
+    public void sequentialList() {
+        final BatchSerializer batch = new BatchSerializer();
+        batch.setChunkSize(100);
+        assertArrayEquals(sequential(BATCH), parallel(batch, new LinkedList<>(BATCH)));
+    }
+
+    @Test
+    public void independentOfParallelism() {
+        final ForkJoinPool single = new ForkJoinPool(1);
+        final ForkJoinPool many = new ForkJoinPool(8);
+        try {
+            final BatchSerializer a = new BatchSerializer();
+            a.setPool(single);
+            final BatchSerializer b = new BatchSerializer();
+            b.setPool(many);
+            assertArrayEquals(parallel(a, BATCH), parallel(b, BATCH));
+        } finally {
+            single.shutdown();
+            many.shutdown();
+        }
+    }
+
+    @Test
+    public void roundTrip() {
+        final List<Object> decoded = ContainerReader.from(parallel(new BatchSerializer(), BATCH)).readAll();
+        assertEquals(BATCH.size(), decoded.size());
+        for (int i = 0; i < BATCH.size(); i++) {
+            if (BATCH.get(i) instanceof int[] arr) {
+                assertArrayEquals(arr, (int[]) decoded.get(i));
+            } else {
+                assertEquals(BATCH.get(i), decoded.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void gatheringChannel(@TempDir final Path dir) throws IOException {
+        final Path file = dir.resolve("batch.bin");
+        final BatchSerializer batch = new BatchSerializer();
+        batch.setChunkSize(100);
+        try (FileChannel fc = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            batch.write(BATCH, fc);
+        }
+        assertArrayEquals(sequential(BATCH), Files.readAllBytes(file));
+    }
+
+    @Test
+    public void referencesDoNotCrossFrames() {
+        final List<List<String>> strings = IntStream.range(0, 1000)
+                .mapToObj(i -> List.of("value-" + i, "value-" + i))
+                .collect(Collectors.toList());
+        final BatchSerializer batch = new BatchSerializer();
+        batch.setReferenceTracking(true);
+        batch.setChunkSize(10);
+        final ContainerReader reader = ContainerReader.from(parallel(batch, strings));
+        reader.setReferenceTracking(true);
+        assertEquals(strings, reader.readAll());
+    }
+
+    @Test
+    public void reuseAcrossBatches() {
+        // the pooled Serializers of the first batches must not leak bytes nor settings into the following ones
+        final BatchSerializer batch = new BatchSerializer();
+        batch.setChunkSize(100);
+        batch.setVariableLengthEncoding(true);
+        parallel(batch, BATCH);
+        batch.setVariableLengthEncoding(false);
+        final List<Object> half = BATCH.subList(0, BATCH.size() / 2);
+        assertArrayEquals(sequential(half), parallel(batch, half));
+        assertArrayEquals(sequential(BATCH), parallel(batch, BATCH));
+    }
+
+    @Test
+    public void emptyBatch() {
+        assertEquals(0, ContainerReader.from(parallel(new BatchSerializer(), List.of())).size());
+    }
+
+    @Test
+    public void invalidChunkSize() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchSerializer().setChunkSize(-1));
+    }
+
+    @Test
+    public void unknownClass() {
+        final List<Object> objects = new ArrayList<>(BATCH);
+        objects.add(new Object());
+        assertThrows(IllegalArgumentException.class, () -> parallel(new BatchSerializer(), objects));
+    }
+
+    @Test
+    public void frames() {
+        final Deserializer des = new Deserializer(parallel(new BatchSerializer(), List.of("ab", 1)));
+        assertEquals(1 + 1 + 4 + 2, des.readInt());
+        assertEquals("ab", des.read());
+        assertEquals(1 + 4, des.readInt());
+        assertEquals(1, des.read());
+        // the index footer
+        assertEquals(0L, des.readLong());
+        assertEquals(4L + 8L, des.readLong());
+        assertEquals(2L, des.readLong());
+        assertEquals(ContainerWriter.MAGIC, des.readInt());
+        assertFalse(des.hasRemaining());
+    }
+}
@@ -0,0 +1,194 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+public final class ByteBufferTest {
+
+    @Test
+    public void directBufferHasSameContentOfHeapArray() {
+        final byte[] expected = TestValues.serialized();
+
+        final ByteBuffer target = ByteBuffer.allocateDirect(expected.length);
+        final Serializer direct = Serializer.to(target);
+        TestValues.writeValues(direct);
+
+        assertEquals(expected.length, direct.size());
+        assertEquals(expected.length, target.position());
+        final byte[] actual = new byte[expected.length];
+        target.flip().get(actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void readDirectBuffer() {
+        final byte[] bytes = TestValues.serialized();
+        final ByteBuffer input = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        TestValues.readValues(Deserializer.from(input));
+        assertEquals(0, input.position());
+    }
+
+    private static ByteBuffer direct(final byte[] bytes) {
+        return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    }
+
+    @Test
+    public void readSlicedDirectBuffer() {
+        final ByteBuffer input = direct(new byte[] {0x01, 0x12, 0x34, 0x56, 0x78, 0x02}).position(1).limit(5);
+        final Deserializer des = Deserializer.from(input);
+        assertEquals(0x12345678, des.readInt());
+        assertFalse(des.hasRemaining());
+        assertThrows(IllegalStateException.class, des::readByte);
+        assertEquals(1, input.position());
+    }
+
+    @Test
+    public void readValuesLargerThanTheInternalBuffer() {
+        final String s = "a\u00e8\u4e2d".repeat(10_000);
+        final int[] arr = IntStream.range(0, 10_000).toArray();
+        final Serializer ser = new Serializer();
+        ser.write(s);
+        ser.write(arr);
+        final Deserializer des = Deserializer.from(direct(ser.toByteArray()));
+        assertEquals(s, des.read());
+        assertArrayEquals(arr, (int[]) des.read());
+        assertFalse(des.hasRemaining());
+    }
+
+    @Test
+    public void verifyFrameChecksumsInPlace() {
+        final Serializer ser = new Serializer();
+        ser.setFrameChecksums(true);
+        ser.writeFrame(List.of(1, "a", true));
+        final byte[] bytes = ser.toByteArray();
+        final Deserializer des = Deserializer.from(direct(bytes));
+        des.setFrameChecksums(true);
+        assertEquals(List.of(1, "a", true), des.readFrame());
+
+        bytes[bytes.length - 1] ^= 0x01;
+        final Deserializer corrupted = Deserializer.from(direct(bytes));
+        corrupted.setFrameChecksums(true);
+        assertThrows(InvalidChecksumException.class, corrupted::readFrame);
+    }
+
+    @Test
+    public void readHeapBuffer() {
+        final ByteBuffer target = ByteBuffer.allocate(1 << 20);
+        final Serializer ser = Serializer.to(target);
+        TestValues.writeValues(ser);
+        TestValues.readValues(Deserializer.from(target.flip()));
+    }
+
+    @Test
+    public void writeInPlaceIntoHeapSlice() {
+        final byte[] array = new byte[8];
+        final ByteBuffer target = ByteBuffer.wrap(array, 2, 6).slice();
+        final Serializer ser = Serializer.to(target);
+        ser.write(0x12345678);
+        // no flush needed: the bytes are already in the array
+        assertEquals(4, target.position());
+        assertArrayEquals(new byte[] {0x00, 0x00, 0x12, 0x34, 0x56, 0x78, 0x00, 0x00}, array);
+        ser.reset();
+        assertEquals(0, target.position());
+        assertEquals(0L, ser.size());
+    }
+
+    @Test
+    public void positionFollowsEachValue() {
+        for (final ByteBuffer target : new ByteBuffer[] {ByteBuffer.allocate(64), ByteBuffer.allocateDirect(64)}) {
+            target.position(3);
+            final Serializer ser = Serializer.to(target);
+            ser.write((short) 1);
+            assertEquals(5, target.position());
+            ser.write("ab");
+            assertEquals(5 + 1 + 1 + 4 + 2, target.position());
+            assertEquals(target.position() - 3, ser.size());
+        }
+    }
+
+    @Test
+    public void varIntsFillTheBuffer() {
+        for (final ByteBuffer target : new ByteBuffer[] {ByteBuffer.allocate(3), ByteBuffer.allocateDirect(3)}) {
+            final Serializer ser = Serializer.to(target);
+            ser.setVariableLengthEncoding(true);
+            ser.write(1);
+            ser.write(1000);
+            assertEquals(3, target.position());
+            assertThrows(BufferOverflowException.class, () -> ser.write(1));
+        }
+    }
+
+    @Test
+    public void compressIntoBuffer() {
+        final ByteBuffer target = ByteBuffer.allocateDirect(1 << 20);
+        final Serializer ser = Serializer.to(target);
+        ser.setCompressor(Compressor.lz4());
+        TestValues.writeValues(ser);
+        ser.flush();
+        final Deserializer des = Deserializer.from(target.flip());
+        des.setCompressor(Compressor.lz4());
+        TestValues.readValues(des);
+    }
+
+    @Test
+    public void cantWriteReadOnlyBuffer() {
+        assertThrows(ReadOnlyBufferException.class, () -> Serializer.to(ByteBuffer.allocate(8).asReadOnlyBuffer()));
+    }
+
+    @Test
+    public void readSlicedHeapBuffer() {
+        final ByteBuffer input = ByteBuffer.wrap(new byte[] {0x01, 0x12, 0x34, 0x56, 0x78, 0x02}, 1, 4);
+        final Deserializer des = Deserializer.from(input.slice());
+        assertEquals(0x12345678, des.readInt());
+        assertThrows(IllegalStateException.class, des::readByte);
+    }
+
+    @Test
+    public void cantReadEmptyBuffer() {
+        assertThrows(IllegalArgumentException.class, () -> Deserializer.from(ByteBuffer.allocateDirect(0)));
+    }
+
+    @Test
+    public void overflow() {
+        final ByteBuffer target = ByteBuffer.allocateDirect(7);
+        final Serializer ser = Serializer.to(target);
+        ser.write(0x01020304);
+        assertThrows(BufferOverflowException.class, () -> ser.write(0x0102030405060708L));
+        // the position stays after the last complete value
+        assertEquals(4, target.position());
+    }
+
+    @Test
+    public void noArrayForExternalTargets() {
+        final Serializer ser = Serializer.to(ByteBuffer.allocate(16));
+        assertThrows(IllegalStateException.class, ser::toByteArray);
+        assertThrows(IllegalStateException.class, ser::toByteBuffer);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+public final class ClassCodesTest {
+
+    @ParameterizedTest
+    @EnumSource(ClassCodes.class)
+    public void lookupByCode(final ClassCodes c) {
+        assertEquals(c, ClassCodes.fromCode(c.getCode()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(ClassCodes.class)
+    public void lookupByClass(final ClassCodes c) {
+        assertEquals(c, ClassCodes.fromClass(c.getRepresentedClass()));
+    }
+
+    @Test
+    public void unknownCode() {
+        assertNull(ClassCodes.fromCode((byte) 0xee));
+    }
+
+    @Test
+    public void unknownClass() {
+        assertNull(ClassCodes.fromClass(Object.class));
+        assertNull(ClassCodes.fromClass(Thread.class));
+    }
+
+    @Test
+    public void implementationClasses() {
+        assertEquals(ClassCodes.LIST, ClassCodes.fromClass(ArrayList.class));
+        assertEquals(ClassCodes.LIST, ClassCodes.fromClass(List.of().getClass()));
+        assertEquals(ClassCodes.SET, ClassCodes.fromClass(TreeSet.class));
+        assertEquals(ClassCodes.MAP, ClassCodes.fromClass(HashMap.class));
+        assertEquals(ClassCodes.MAP, ClassCodes.fromClass(ConcurrentHashMap.class));
+        assertEquals(ClassCodes.ARRAY, ClassCodes.fromClass(String[].class));
+    }
+
+    @Test
+    public void concurrentLookups() {
+        IntStream.range(0, 10_000).parallel().forEach(i -> {
+            for (final ClassCodes c : ClassCodes.values()) {
+                assertEquals(c, ClassCodes.fromCode(c.getCode()));
+                assertEquals(c, ClassCodes.fromClass(c.getRepresentedClass()));
+            }
+        });
+    }
+}
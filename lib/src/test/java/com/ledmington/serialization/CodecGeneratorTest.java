@@ -0,0 +1,118 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public final class CodecGeneratorTest {
+
+    public record Point(int x, int y) {}
+
+    private record AllTypes(
+            boolean z, byte b, short s, int i, long l, float f, double d, char c, String str, Optional<Integer> opt) {}
+
+    private record Nested(Point p, List<Point> points, Map<String, Point> named, double[] samples, Object any) {}
+
+    private record Empty() {}
+
+    private static Stream<Record> records() {
+        return Stream.of(
+                new Point(1, -2),
+                new AllTypes(true, (byte) 1, (short) -2, 3, -4L, 5.5f, -6.25, 'x', "seven", Optional.of(8)),
+                new AllTypes(false, (byte) 0, (short) 0, 0, 0L, 0f, 0.0, '\0', "", Optional.empty()),
+                new Nested(
+                        new Point(0, 0),
+                        List.of(new Point(1, 1), new Point(2, 2)),
+                        Map.of("a", new Point(3, 3)),
+                        new double[0],
+                        "any"),
+                new Empty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Codec<Object> generate(final Class<?> type) throws IllegalAccessException {
+        return (Codec<Object>) CodecGenerator.generate(type);
+    }
+
+    @ParameterizedTest
+    @MethodSource("records")
+    public void sameBytesAsMethodHandles(final Record r) throws IllegalAccessException {
+        final Codec<Object> generated = generate(r.getClass());
+        assertTrue(generated.getClass().isHidden());
+
+        final Serializer expected = new Serializer();
+        new RecordCodec(r.getClass()).write(expected, r);
+        final Serializer actual = new Serializer();
+        generated.write(actual, r);
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @ParameterizedTest
+    @MethodSource("records")
+    public void roundTrip(final Record r) throws IllegalAccessException {
+        final Codec<Object> codec = generate(r.getClass());
+        final Serializer ser = new Serializer();
+        codec.write(ser, r);
+        // checks that the codec reads exactly what it wrote
+        ser.write(42);
+        final Deserializer des = new Deserializer(ser.toByteArray());
+        des.setClassLoader(CodecGeneratorTest.class.getClassLoader());
+        final Object decoded = codec.read(des);
+        assertEquals(42, des.readInt());
+        if (r instanceof Nested n) {
+            final Nested d = (Nested) decoded;
+            assertEquals(n.p(), d.p());
+            assertEquals(n.points(), d.points());
+            assertEquals(n.named(), d.named());
+            assertArrayEquals(n.samples(), d.samples());
+            assertEquals(n.any(), d.any());
+        } else {
+            assertEquals(r, decoded);
+        }
+    }
+
+    @Test
+    public void notUsedByDefault() {
+        assertEquals(RecordCodec.class, RecordCodec.of(Point.class).getClass());
+    }
+
+    @Test
+    public void wrongComponentType() throws IllegalAccessException {
+        final Codec<Object> codec = generate(Nested.class);
+        final Serializer ser = new Serializer();
+        ser.write("not a point");
+        assertThrows(ClassCastException.class, () -> codec.read(new Deserializer(ser.toByteArray())));
+    }
+
+    @Test
+    public void notARecord() {
+        assertThrows(IllegalArgumentException.class, () -> CodecGenerator.generate(String.class));
+    }
+}
@@ -0,0 +1,174 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+public final class CodecRegistryTest {
+
+    private static class Money {
+        private final long cents;
+        private final String currency;
+
+        Money(final long cents, final String currency) {
+            this.cents = cents;
+            this.currency = currency;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof Money m && m.cents == cents && m.currency.equals(currency);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(cents) * 31 + currency.hashCode();
+        }
+    }
+
+    private static final class Tip extends Money {
+        Tip(final long cents) {
+            super(cents, "EUR");
+        }
+    }
+
+    private static final byte MONEY = (byte) 0x40;
+
+    private static final Codec<Money> MONEY_CODEC = new Codec<>() {
+        @Override
+        public void write(final Serializer ser, final Money value) {
+            ser.write(value.cents);
+            ser.write(value.currency);
+        }
+
+        @Override
+        public Money read(final Deserializer des) {
+            final long cents = des.readLong();
+            return new Money(cents, (String) des.read());
+        }
+    };
+
+    private static final CodecRegistry REGISTRY =
+            CodecRegistry.builder().register(Money.class, MONEY, MONEY_CODEC).build();
+
+    private static byte[] serialize(final Object obj, final CodecRegistry registry) {
+        final Serializer ser = new Serializer();
+        ser.setCodecRegistry(registry);
+        ser.write(obj);
+        return ser.toByteArray();
+    }
+
+    private static Object deserialize(final byte[] bytes, final CodecRegistry registry) {
+        final Deserializer des = new Deserializer(bytes);
+        des.setCodecRegistry(registry);
+        return des.read();
+    }
+
+    @Test
+    public void defaultRegistry() {
+        assertSame(CodecRegistry.defaultRegistry(), new Serializer().getCodecRegistry());
+        assertSame(CodecRegistry.defaultRegistry(), new Deserializer(new byte[] {1}).getCodecRegistry());
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> serialize(new Money(1, "EUR"), CodecRegistry.defaultRegistry()));
+    }
+
+    @Test
+    public void userCodec() {
+        final Money m = new Money(1234, "EUR");
+        final byte[] bytes = serialize(m, REGISTRY);
+        assertEquals(MONEY, bytes[0]);
+        assertEquals(m, deserialize(bytes, REGISTRY));
+    }
+
+    @Test
+    public void unknownCodeWithoutRegistry() {
+        final byte[] bytes = serialize(new Money(1, "EUR"), REGISTRY);
+        assertThrows(IllegalArgumentException.class, () -> deserialize(bytes, CodecRegistry.defaultRegistry()));
+    }
+
+    @Test
+    public void subclasses() {
+        assertEquals(new Money(5, "EUR"), deserialize(serialize(new Tip(5), REGISTRY), REGISTRY));
+    }
+
+    @Test
+    public void insideContainers() {
+        final List<Money> list = List.of(new Money(1, "EUR"), new Money(2, "USD"), new Money(3, "GBP"));
+        final byte[] bytes = serialize(list, REGISTRY);
+        assertEquals(ClassCodes.HOMOGENEOUS, bytes[0]);
+        assertEquals(list, deserialize(bytes, REGISTRY));
+
+        final Map<String, Object> map = Map.of("price", new Money(99, "EUR"), "count", 3);
+        assertEquals(map, deserialize(serialize(map, REGISTRY), REGISTRY));
+    }
+
+    @Test
+    public void userTypesAreTrackedByIdentity() {
+        final Money m = new Money(1, "EUR");
+        final Serializer ser = new Serializer();
+        ser.setCodecRegistry(REGISTRY);
+        ser.setReferenceTracking(true);
+        ser.write(new ArrayList<>(List.of(m, m)));
+        final Deserializer des = new Deserializer(ser.toByteArray());
+        des.setCodecRegistry(REGISTRY);
+        des.setReferenceTracking(true);
+        @SuppressWarnings("unchecked")
+        final List<Money> decoded = (List<Money>) des.read();
+        assertSame(decoded.get(0), decoded.get(1));
+    }
+
+    @Test
+    public void invalidRegistrations() {
+        final CodecRegistry.Builder b = CodecRegistry.builder().register(Money.class, MONEY, MONEY_CODEC);
+        assertThrows(
+                IllegalArgumentException.class, () -> b.register(Money.class, (byte) 0x41, MONEY_CODEC));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> b.register(Money.class, ClassCodes.STRING.getCode(), MONEY_CODEC));
+        assertThrows(
+                IllegalArgumentException.class, () -> b.register(Money.class, ClassCodes.REFERENCE, MONEY_CODEC));
+        assertThrows(
+                IllegalArgumentException.class, () -> b.register(Money.class, ClassCodes.HOMOGENEOUS, MONEY_CODEC));
+    }
+
+    @Test
+    public void builderDoesNotChangeBuiltRegistries() {
+        final CodecRegistry.Builder b = CodecRegistry.builder();
+        final CodecRegistry empty = b.build();
+        b.register(Money.class, MONEY, MONEY_CODEC);
+        assertThrows(IllegalArgumentException.class, () -> serialize(new Money(1, "EUR"), empty));
+    }
+
+    @Test
+    public void sharedAcrossThreads() {
+        IntStream.range(0, 10_000).parallel().forEach(i -> {
+            final Money m = new Money(i, "EUR");
+            assertEquals(m, deserialize(serialize(m, REGISTRY), REGISTRY));
+        });
+    }
+}
@@ -17,6 +17,7 @@
 */
 package com.ledmington.serialization;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import org.junit.jupiter.api.Test;
@@ -38,4 +39,30 @@ public final class CommonDeserializationTest {
         des.readByte();
         assertThrows(IllegalStateException.class, des::readByte);
     }
+
+    @Test
+    public void readSlice() {
+        final Deserializer des = new Deserializer(new byte[] {0x01, 0x12, 0x34, 0x56, 0x78, 0x02}, 1, 4);
+        assertEquals(0x12345678, des.readInt());
+        assertThrows(IllegalStateException.class, des::readByte);
+    }
+
+    @Test
+    public void readOutOfBoundsSlice() {
+        assertThrows(IndexOutOfBoundsException.class, () -> new Deserializer(new byte[4], 2, 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> new Deserializer(new byte[4], -1, 2));
+    }
+
+    @Test
+    public void truncatedValue() {
+        final Deserializer des = new Deserializer(new byte[] {0x12, 0x34, 0x56});
+        assertThrows(IllegalStateException.class, des::readInt);
+        assertEquals((short) 0x1234, des.readShort());
+    }
+
+    @Test
+    public void unknownClassCode() {
+        final Deserializer des = new Deserializer(new byte[] {(byte) 0xee, 0x00});
+        assertThrows(IllegalArgumentException.class, des::read);
+    }
 }
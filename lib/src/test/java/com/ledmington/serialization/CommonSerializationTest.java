@@ -18,8 +18,12 @@
 package com.ledmington.serialization;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.nio.ByteBuffer;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -46,4 +50,33 @@ public final class CommonSerializationTest {
     public void cantSerializeObject() {
         assertThrows(IllegalArgumentException.class, () -> ser.write(new Object()));
     }
+
+    @Test
+    public void cantHaveNegativeCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new Serializer(-1));
+    }
+
+    @Test
+    public void growsOverInitialCapacity() {
+        final Serializer ser = new Serializer(0);
+        final byte[] expected = new byte[1000];
+        for (int i = 0; i < 125; i++) {
+            ser.write(0x0102030405060708L);
+            for (int j = 0; j < 8; j++) {
+                expected[8 * i + j] = (byte) (j + 1);
+            }
+        }
+        assertEquals(1000, ser.size());
+        assertArrayEquals(expected, ser.toByteArray());
+    }
+
+    @Test
+    public void byteBufferIsNotCopied() {
+        ser.write(0x12345678);
+        final ByteBuffer bb = ser.toByteBuffer();
+        assertEquals(0, bb.position());
+        assertEquals(4, bb.remaining());
+        assertEquals(0x12345678, bb.getInt());
+        assertSame(bb.array(), ser.toByteBuffer().array());
+    }
 }
@@ -17,10 +17,14 @@
 */
 package com.ledmington.serialization;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.junit.jupiter.api.Test;
 
@@ -47,7 +51,9 @@ public final class ComplexTypesDeserializationTest {
 
     @Test
     public void deserializeEmptyString() {
-        final Deserializer des = new Deserializer(new byte[] {ClassCodes.STRING.getCode(), 0x00, 0x00, 0x00, 0x00});
+        final Deserializer des = new Deserializer(new byte[] {
+            ClassCodes.STRING.getCode(), Serializer.STRING_LATIN1, 0x00, 0x00, 0x00, 0x00
+        });
         assertEquals("", des.read());
     }
 
@@ -55,41 +61,130 @@ public final class ComplexTypesDeserializationTest {
     public void deserializeString() {
         final Deserializer des = new Deserializer(new byte[] {
             ClassCodes.STRING.getCode(),
+            Serializer.STRING_LATIN1,
             0x00,
             0x00,
             0x00,
             (byte) 0x0f,
-            (byte) 0x00,
             (byte) 0x73,
-            (byte) 0x00,
             (byte) 0x65,
-            (byte) 0x00,
             (byte) 0x72,
-            (byte) 0x00,
             (byte) 0x69,
-            (byte) 0x00,
             (byte) 0x61,
-            (byte) 0x00,
             (byte) 0x6c,
-            (byte) 0x00,
             (byte) 0x69,
-            (byte) 0x00,
             (byte) 0x7a,
-            (byte) 0x00,
             (byte) 0x65,
-            (byte) 0x00,
             (byte) 0x53,
-            (byte) 0x00,
             (byte) 0x74,
-            (byte) 0x00,
             (byte) 0x72,
-            (byte) 0x00,
             (byte) 0x69,
-            (byte) 0x00,
             (byte) 0x6e,
-            (byte) 0x00,
             (byte) 0x67
         });
         assertEquals("serializeString", des.read());
     }
+
+    @Test
+    public void deserializeUTF8String() {
+        final Deserializer des = new Deserializer(new byte[] {
+            ClassCodes.STRING.getCode(),
+            Serializer.STRING_UTF8,
+            0x00,
+            0x00,
+            0x00,
+            0x04,
+            (byte) 0x61,
+            (byte) 0xe2,
+            (byte) 0x82,
+            (byte) 0xac
+        });
+        assertEquals("a\u20ac", des.read());
+    }
+
+    @Test
+    public void deserializeUTF16String() {
+        final Deserializer des = new Deserializer(new byte[] {
+            ClassCodes.STRING.getCode(),
+            Serializer.STRING_UTF16,
+            0x00,
+            0x00,
+            0x00,
+            0x02,
+            (byte) 0x00,
+            (byte) 0x61,
+            (byte) 0xd8,
+            (byte) 0x00
+        });
+        assertEquals("a\ud800", des.read());
+    }
+
+    @Test
+    public void deserializeWrongStringEncoding() {
+        final Deserializer des = new Deserializer(
+                new byte[] {ClassCodes.STRING.getCode(), (byte) 0x15, 0x00, 0x00, 0x00, 0x00});
+        assertThrows(InvalidStringEncodingException.class, des::read);
+    }
+
+    @Test
+    public void deserializeTruncatedString() {
+        final Deserializer des = new Deserializer(
+                new byte[] {ClassCodes.STRING.getCode(), Serializer.STRING_LATIN1, 0x00, 0x00, 0x00, 0x02, 0x61});
+        assertThrows(IllegalStateException.class, des::read);
+    }
+
+    @Test
+    public void deserializeList() {
+        final Deserializer des = new Deserializer(new byte[] {
+            ClassCodes.LIST.getCode(),
+            0x00,
+            0x00,
+            0x00,
+            0x02,
+            ClassCodes.BYTE.getCode(),
+            0x01,
+            ClassCodes.BYTE.getCode(),
+            0x02
+        });
+        assertEquals(List.of((byte) 1, (byte) 2), des.read());
+    }
+
+    @Test
+    public void deserializeSet() {
+        final Deserializer des = new Deserializer(new byte[] {
+            ClassCodes.SET.getCode(), 0x00, 0x00, 0x00, 0x01, ClassCodes.BOOLEAN.getCode(), (byte) 0xff
+        });
+        assertEquals(Set.of(true), des.read());
+    }
+
+    @Test
+    public void deserializeMap() {
+        final Deserializer des = new Deserializer(new byte[] {
+            ClassCodes.MAP.getCode(),
+            0x00,
+            0x00,
+            0x00,
+            0x01,
+            ClassCodes.BYTE.getCode(),
+            0x01,
+            ClassCodes.BOOLEAN.getCode(),
+            0x00
+        });
+        assertEquals(Map.of((byte) 1, false), des.read());
+    }
+
+    @Test
+    public void deserializeArray() {
+        final Deserializer des = new Deserializer(
+                new byte[] {ClassCodes.ARRAY.getCode(), 0x00, 0x00, 0x00, 0x01, ClassCodes.BYTE.getCode(), 0x01});
+        assertArrayEquals(new Object[] {(byte) 1}, (Object[]) des.read());
+    }
+
+    @Test
+    public void deserializeListWithWrongLength() {
+        final Deserializer des = new Deserializer(new byte[] {
+            ClassCodes.LIST.getCode(), 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff, ClassCodes.BYTE.getCode(), 0x01
+        });
+        assertThrows(IllegalStateException.class, des::read);
+    }
 }
@@ -18,8 +18,16 @@
 package com.ledmington.serialization;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -58,7 +66,9 @@ public final class ComplexTypesSerializationTest {
     @Test
     public void serializeEmptyString() {
         ser.write("");
-        assertArrayEquals(ser.toByteArray(), new byte[] {ClassCodes.STRING.getCode(), 0x00, 0x00, 0x00, 0x00});
+        assertArrayEquals(
+                ser.toByteArray(),
+                new byte[] {ClassCodes.STRING.getCode(), Serializer.STRING_LATIN1, 0x00, 0x00, 0x00, 0x00});
     }
 
     @Test
@@ -66,40 +76,140 @@ public final class ComplexTypesSerializationTest {
         ser.write("serializeString");
         assertArrayEquals(ser.toByteArray(), new byte[] {
             ClassCodes.STRING.getCode(),
+            Serializer.STRING_LATIN1,
             0x00,
             0x00,
             0x00,
             (byte) 0x0f,
-            (byte) 0x00,
             (byte) 0x73,
-            (byte) 0x00,
             (byte) 0x65,
-            (byte) 0x00,
             (byte) 0x72,
-            (byte) 0x00,
             (byte) 0x69,
-            (byte) 0x00,
             (byte) 0x61,
-            (byte) 0x00,
             (byte) 0x6c,
-            (byte) 0x00,
             (byte) 0x69,
-            (byte) 0x00,
             (byte) 0x7a,
-            (byte) 0x00,
             (byte) 0x65,
-            (byte) 0x00,
             (byte) 0x53,
-            (byte) 0x00,
             (byte) 0x74,
-            (byte) 0x00,
             (byte) 0x72,
-            (byte) 0x00,
             (byte) 0x69,
-            (byte) 0x00,
             (byte) 0x6e,
-            (byte) 0x00,
             (byte) 0x67
         });
     }
+
+    @Test
+    public void serializeLatin1String() {
+        ser.write("\u00e0\u00ff");
+        assertArrayEquals(
+                new byte[] {
+                    ClassCodes.STRING.getCode(),
+                    Serializer.STRING_LATIN1,
+                    0x00,
+                    0x00,
+                    0x00,
+                    0x02,
+                    (byte) 0xe0,
+                    (byte) 0xff
+                },
+                ser.toByteArray());
+    }
+
+    @Test
+    public void serializeUTF8String() {
+        ser.write("a\u20ac");
+        assertArrayEquals(
+                new byte[] {
+                    ClassCodes.STRING.getCode(),
+                    Serializer.STRING_UTF8,
+                    0x00,
+                    0x00,
+                    0x00,
+                    0x04,
+                    (byte) 0x61,
+                    (byte) 0xe2,
+                    (byte) 0x82,
+                    (byte) 0xac
+                },
+                ser.toByteArray());
+    }
+
+    @Test
+    public void serializeStringWithUnpairedSurrogate() {
+        ser.write("a\ud800");
+        assertArrayEquals(
+                new byte[] {
+                    ClassCodes.STRING.getCode(),
+                    Serializer.STRING_UTF16,
+                    0x00,
+                    0x00,
+                    0x00,
+                    0x02,
+                    (byte) 0x00,
+                    (byte) 0x61,
+                    (byte) 0xd8,
+                    (byte) 0x00
+                },
+                ser.toByteArray());
+    }
+
+    @Test
+    public void serializeList() {
+        ser.write(new LinkedList<>(List.of((byte) 1, (byte) 2)));
+        assertArrayEquals(
+                new byte[] {
+                    ClassCodes.LIST.getCode(),
+                    0x00,
+                    0x00,
+                    0x00,
+                    0x02,
+                    ClassCodes.BYTE.getCode(),
+                    0x01,
+                    ClassCodes.BYTE.getCode(),
+                    0x02
+                },
+                ser.toByteArray());
+    }
+
+    @Test
+    public void serializeSet() {
+        ser.write(new TreeSet<>(Set.of(true)));
+        assertArrayEquals(
+                new byte[] {
+                    ClassCodes.SET.getCode(), 0x00, 0x00, 0x00, 0x01, ClassCodes.BOOLEAN.getCode(), (byte) 0xff
+                },
+                ser.toByteArray());
+    }
+
+    @Test
+    public void serializeMap() {
+        ser.write(new HashMap<>(Map.of((byte) 1, false)));
+        assertArrayEquals(
+                new byte[] {
+                    ClassCodes.MAP.getCode(),
+                    0x00,
+                    0x00,
+                    0x00,
+                    0x01,
+                    ClassCodes.BYTE.getCode(),
+                    0x01,
+                    ClassCodes.BOOLEAN.getCode(),
+                    0x00
+                },
+                ser.toByteArray());
+    }
+
+    @Test
+    public void serializeArray() {
+        ser.write(new Byte[] {(byte) 1});
+        assertArrayEquals(
+                new byte[] {ClassCodes.ARRAY.getCode(), 0x00, 0x00, 0x00, 0x01, ClassCodes.BYTE.getCode(), 0x01},
+                ser.toByteArray());
+    }
+
+    @Test
+    public void cantSerializeNullElements() {
+        assertThrows(NullPointerException.class, () -> ser.write(Arrays.asList(1, null)));
+    }
 }
@@ -0,0 +1,244 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public final class CompressionTest {
+
+    // drops the trailing zeros
+    private static final Compressor TRIM = new Compressor() {
+        @Override
+        public int maxCompressedLength(final int length) {
+            return length;
+        }
+
+        @Override
+        public int compress(final byte[] src, final int srcOff, final int srcLen, final byte[] dst, final int dstOff) {
+            int n = srcLen;
+            while (n > 0 && src[srcOff + n - 1] == 0) {
+                n--;
+            }
+            System.arraycopy(src, srcOff, dst, dstOff, n);
+            return n;
+        }
+
+        @Override
+        public void decompress(
+                final byte[] src,
+                final int srcOff,
+                final int srcLen,
+                final byte[] dst,
+                final int dstOff,
+                final int dstLen) {
+            System.arraycopy(src, srcOff, dst, dstOff, srcLen);
+            Arrays.fill(dst, dstOff + srcLen, dstOff + dstLen, (byte) 0);
+        }
+    };
+
+    @Test
+    public void inMemory() {
+        final Serializer ser = new Serializer();
+        ser.setCompressor(Compressor.lz4());
+        TestValues.writeValues(ser);
+        final byte[] bytes = ser.toByteArray();
+        assertTrue(bytes.length < TestValues.serialized().length / 2);
+        assertEquals(TestValues.serialized().length, ser.size());
+        final Deserializer des = new Deserializer(bytes);
+        des.setCompressor(Compressor.lz4());
+        TestValues.readValues(des);
+    }
+
+    @Test
+    public void toByteBuffer() {
+        final Serializer ser = new Serializer();
+        ser.setCompressor(Compressor.lz4());
+        TestValues.writeValues(ser);
+        final Deserializer des = Deserializer.from(ser.toByteBuffer());
+        des.setCompressor(Compressor.lz4());
+        TestValues.readValues(des);
+    }
+
+    @Test
+    public void streaming() {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final Serializer ser = Serializer.to(baos, 1000);
+        ser.setCompressor(Compressor.lz4());
+        // larger than the buffer, so it is written straight to the sink
+        final int[] large = new int[100_000];
+        ser.write(large);
+        TestValues.writeValues(ser);
+        ser.flush();
+        assertTrue(baos.size() < ser.size() / 2);
+
+        final Deserializer des = Deserializer.from(new ByteArrayInputStream(baos.toByteArray()), 16);
+        des.setCompressor(Compressor.lz4());
+        assertArrayEquals(large, (int[]) des.read());
+        TestValues.readValues(des);
+    }
+
+    @Test
+    public void blocksDoNotDependOnTheBufferSize() {
+        final Serializer inMemory = new Serializer();
+        inMemory.setCompressor(Compressor.lz4());
+        TestValues.writeValues(inMemory);
+        final byte[] expected = inMemory.toByteArray();
+        for (final int bufferSize : new int[] {10, 1000, 100_000}) {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            final Serializer ser = Serializer.to(baos, bufferSize);
+            ser.setCompressor(Compressor.lz4());
+            TestValues.writeValues(ser);
+            ser.flush();
+            assertArrayEquals(expected, baos.toByteArray());
+        }
+    }
+
+    @Test
+    public void blocksPayForTheirHeader() {
+        // compressing saves two bytes, but the header of a compressed block is four bytes longer
+        final Serializer ser = new Serializer();
+        ser.setCompressor(TRIM);
+        ser.write(new byte[] {1, 0, 0});
+        final byte[] bytes = ser.toByteArray();
+        assertEquals(BlockCompression.STORED, bytes[0]);
+        final Deserializer des = new Deserializer(bytes);
+        des.setCompressor(TRIM);
+        assertArrayEquals(new byte[] {1, 0, 0}, (byte[]) des.read());
+    }
+
+    @Test
+    public void storedBlocks() {
+        final byte[] random = new byte[1000];
+        new Random(42).nextBytes(random);
+        final Serializer ser = new Serializer();
+        ser.setCompressor(Compressor.lz4());
+        ser.write(random);
+        final byte[] bytes = ser.toByteArray();
+        assertEquals(BlockCompression.STORED, bytes[0]);
+        final Deserializer des = new Deserializer(bytes);
+        des.setCompressor(Compressor.lz4());
+        assertArrayEquals(random, (byte[]) des.read());
+    }
+
+    @Test
+    public void customCompressor() {
+        final Serializer ser = new Serializer();
+        ser.setCompressor(TRIM);
+        ser.write(new byte[1000]);
+        final byte[] bytes = ser.toByteArray();
+        assertEquals(BlockCompression.COMPRESSED, bytes[0]);
+        assertTrue(bytes.length < 20);
+        final Deserializer des = new Deserializer(bytes);
+        des.setCompressor(TRIM);
+        assertArrayEquals(new byte[1000], (byte[]) des.read());
+    }
+
+    @Test
+    public void reuse() {
+        final Serializer ser = new Serializer();
+        ser.setCompressor(Compressor.lz4());
+        ser.write(List.of("a", "b", "c"));
+        final byte[] first = ser.toByteArray();
+        ser.reset();
+        ser.write("second");
+        final byte[] second = ser.toByteArray();
+
+        final Deserializer des = new Deserializer(first);
+        des.setCompressor(Compressor.lz4());
+        assertEquals(List.of("a", "b", "c"), des.read());
+        des.reset(second);
+        assertEquals("second", des.read());
+        // the rest of a block is discarded
+        des.reset(first);
+        assertEquals(ClassCodes.HOMOGENEOUS, des.readByte());
+        des.reset(second);
+        assertEquals("second", des.read());
+    }
+
+    @Test
+    public void compressAgain() {
+        final Serializer ser = new Serializer();
+        ser.setCompressor(Compressor.lz4());
+        TestValues.writeValues(ser);
+        final byte[] first = ser.toByteArray();
+        final ByteBuffer buffer = ser.toByteBuffer();
+        final byte[] second = new byte[buffer.remaining()];
+        buffer.get(second);
+        assertArrayEquals(first, second);
+        assertArrayEquals(first, ser.toByteArray());
+    }
+
+    @Test
+    public void disable() {
+        final Serializer ser = new Serializer();
+        ser.setCompressor(Compressor.lz4());
+        ser.setCompressor(null);
+        ser.write(1);
+        final Deserializer des = new Deserializer(ser.toByteArray());
+        des.setCompressor(Compressor.lz4());
+        des.setCompressor(null);
+        assertEquals(1, des.readInt());
+    }
+
+    @Test
+    public void setAfterWriting() {
+        final Serializer ser = new Serializer();
+        ser.write(1);
+        assertThrows(IllegalStateException.class, () -> ser.setCompressor(Compressor.lz4()));
+    }
+
+    @Test
+    public void truncated() {
+        final Serializer ser = new Serializer();
+        ser.setCompressor(Compressor.lz4());
+        TestValues.writeValues(ser);
+        final byte[] bytes = ser.toByteArray();
+        final Deserializer des = new Deserializer(Arrays.copyOf(bytes, bytes.length - 1));
+        des.setCompressor(Compressor.lz4());
+        assertThrows(InvalidBlockException.class, () -> TestValues.readValues(des));
+    }
+
+    @Test
+    public void invalidBlockType() {
+        final Deserializer des = new Deserializer(new byte[] {0x02, 0x00, 0x00, 0x00, 0x01, 0x01});
+        des.setCompressor(Compressor.lz4());
+        assertThrows(InvalidBlockException.class, des::read);
+    }
+
+    @Test
+    public void noViews() {
+        final Serializer ser = new Serializer();
+        ser.setCompressor(Compressor.lz4());
+        ser.write("s");
+        final Deserializer des = new Deserializer(ser.toByteArray());
+        des.setCompressor(Compressor.lz4());
+        assertThrows(IllegalStateException.class, des::readView);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public final class ContainerTest {
+
+    private static final List<Object> OBJECTS = IntStream.range(0, 5_000)
+            .mapToObj(i -> i % 3 == 0 ? (Object) ("value-" + i) : List.of(i, i * 2L, "x".repeat(i % 50)))
+            .collect(Collectors.toList());
+
+    private static byte[] write(final List<?> objects) {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final ContainerWriter writer = ContainerWriter.to(baos);
+        for (final Object obj : objects) {
+            writer.write(obj);
+        }
+        writer.finish();
+        return baos.toByteArray();
+    }
+
+    @Test
+    public void randomAccess() {
+        final ContainerReader reader = ContainerReader.from(write(OBJECTS));
+        assertEquals(OBJECTS.size(), reader.size());
+        for (final int i : new int[] {4_999, 0, 2_500, 1, 3_333}) {
+            assertEquals(OBJECTS.get(i), reader.read(i));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.read(5_000));
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.read(-1));
+    }
+
+    @Test
+    public void ranges() {
+        final ContainerReader reader = ContainerReader.from(write(OBJECTS));
+        assertEquals(OBJECTS.subList(100, 200), reader.read(100, 200));
+        assertEquals(List.of(), reader.read(7, 7));
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.read(10, 5_001));
+    }
+
+    @Test
+    public void parallelDecode() {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final ContainerReader reader = ContainerReader.from(write(OBJECTS));
+            reader.setPool(pool);
+            assertEquals(OBJECTS, reader.readAll());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void empty() {
+        final ContainerReader reader = ContainerReader.from(write(List.of()));
+        assertEquals(0, reader.size());
+        assertEquals(List.of(), reader.readAll());
+    }
+
+    @Test
+    public void settings() {
+        final List<List<String>> objects = IntStream.range(0, 100)
+                .mapToObj(i -> List.of("v" + i, "v" + i))
+                .collect(Collectors.toList());
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final ContainerWriter writer = ContainerWriter.to(baos);
+        writer.setReferenceTracking(true);
+        writer.setVariableLengthEncoding(true);
+        objects.forEach(writer::write);
+        writer.finish();
+
+        final ContainerReader reader = ContainerReader.from(baos.toByteArray());
+        reader.setReferenceTracking(true);
+        reader.setVariableLengthEncoding(true);
+        assertEquals(objects.get(42), reader.read(42));
+        assertEquals(objects, reader.readAll());
+    }
+
+    @Test
+    public void mappedFileWithSmallWindows(@TempDir final Path dir) throws IOException {
+        final Path file = dir.resolve("container.bin");
+        Files.write(file, write(OBJECTS));
+        // windows much smaller than most frames and not aligned to them
+        final ContainerReader reader = ContainerReader.map(file, 37);
+        assertEquals(OBJECTS.size(), reader.size());
+        assertEquals(OBJECTS.get(1234), reader.read(1234));
+        assertEquals(OBJECTS, reader.readAll());
+        assertEquals(OBJECTS, ContainerReader.map(file).readAll());
+    }
+
+    @Test
+    public void finishTwice() {
+        final ContainerWriter writer = ContainerWriter.to(OutputStream.nullOutputStream());
+        writer.finish();
+        assertThrows(IllegalStateException.class, writer::finish);
+        assertThrows(IllegalStateException.class, () -> writer.write(1));
+    }
+
+    @Test
+    public void notAContainer() {
+        assertThrows(IllegalArgumentException.class, () -> ContainerReader.from(new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> ContainerReader.from(new byte[20]));
+        final byte[] bytes = write(List.of(1, 2));
+        // more frames than the index can hold
+        bytes[bytes.length - 6] = 1;
+        assertThrows(IllegalArgumentException.class, () -> ContainerReader.from(bytes));
+    }
+
+    @Test
+    public void invalidOffsets() {
+        final byte[] bytes = write(List.of(1, 2));
+        // the second frame starts before the first one
+        Arrays.fill(bytes, bytes.length - 12 - 8, bytes.length - 12, (byte) 0xff);
+        final ContainerReader reader = ContainerReader.from(bytes);
+        assertThrows(IllegalStateException.class, () -> reader.read(1));
+    }
+
+    @Test
+    public void frameLengthMismatch() {
+        final Serializer ser = new Serializer();
+        ser.writeFrame(List.of("abc", 1));
+        ser.writeFrame(2);
+        final byte[] bytes = ser.toByteArray();
+        // the first frame claims one byte of the second one
+        bytes[3]++;
+        final Deserializer des = new Deserializer(bytes);
+        assertThrows(IllegalStateException.class, des::readFrame);
+        // the count must survive the refills of a streaming Deserializer
+        final Deserializer streaming = Deserializer.from(new ByteArrayInputStream(bytes), 8);
+        assertThrows(IllegalStateException.class, streaming::readFrame);
+    }
+}
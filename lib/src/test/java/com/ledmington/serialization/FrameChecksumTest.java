@@ -0,0 +1,172 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public final class FrameChecksumTest {
+
+    // small frames and frames larger than the buffer of streaming Deserializers
+    private static final List<Object> OBJECTS = IntStream.range(0, 200)
+            .mapToObj(i -> i % 10 == 0 ? (Object) IntStream.range(0, 5_000).toArray() : List.of(i, true, "s" + i))
+            .collect(Collectors.toList());
+
+    private static byte[] write(final List<?> objects) {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final ContainerWriter writer = ContainerWriter.to(baos);
+        writer.setFrameChecksums(true);
+        for (final Object obj : objects) {
+            writer.write(obj);
+        }
+        writer.finish();
+        return baos.toByteArray();
+    }
+
+    private static void assertObjectsEqual(final List<Object> actual) {
+        assertEquals(OBJECTS.size(), actual.size());
+        for (int i = 0; i < OBJECTS.size(); i++) {
+            if (OBJECTS.get(i) instanceof int[] arr) {
+                assertArrayEquals(arr, (int[]) actual.get(i));
+            } else {
+                assertEquals(OBJECTS.get(i), actual.get(i));
+            }
+        }
+    }
+
+    private static ContainerReader reader(final byte[] bytes) {
+        final ContainerReader reader = ContainerReader.from(bytes);
+        reader.setFrameChecksums(true);
+        return reader;
+    }
+
+    @Test
+    public void layout() {
+        final Serializer ser = new Serializer();
+        ser.setFrameChecksums(true);
+        ser.writeFrame("abc");
+        final ByteBuffer bb = ser.toByteBuffer();
+        final int length = bb.getInt(0);
+        assertEquals(bb.limit(), Integer.BYTES + length + Integer.BYTES);
+        final CRC32C crc = new CRC32C();
+        crc.update(bb.array(), 0, Integer.BYTES + length);
+        assertEquals((int) crc.getValue(), bb.getInt(Integer.BYTES + length));
+    }
+
+    @Test
+    public void roundTrip() {
+        assertObjectsEqual(reader(write(OBJECTS)).readAll());
+    }
+
+    @Test
+    public void batch() {
+        final BatchSerializer batch = new BatchSerializer();
+        batch.setChunkSize(7);
+        batch.setFrameChecksums(true);
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        batch.write(OBJECTS, baos);
+        assertObjectsEqual(reader(baos.toByteArray()).readAll());
+    }
+
+    @Test
+    public void mappedFile(@TempDir final Path dir) throws IOException {
+        final Path file = dir.resolve("container");
+        Files.write(file, write(OBJECTS));
+        final ContainerReader reader = ContainerReader.map(file, 1_000);
+        reader.setFrameChecksums(true);
+        assertObjectsEqual(reader.readAll());
+    }
+
+    @Test
+    public void streaming() {
+        final Serializer ser = new Serializer();
+        ser.setFrameChecksums(true);
+        for (final Object obj : OBJECTS) {
+            ser.writeFrame(obj);
+        }
+        final Deserializer des = Deserializer.from(new ByteArrayInputStream(ser.toByteArray()), 64);
+        des.setFrameChecksums(true);
+        assertObjectsEqual(OBJECTS.stream().map(o -> des.readFrame()).collect(Collectors.toList()));
+    }
+
+    /**
+     * Returns a frame with a single boolean, whose value is the last byte before the checksum.
+     */
+    private static byte[] booleanFrame() {
+        final Serializer ser = new Serializer();
+        ser.setFrameChecksums(true);
+        ser.writeFrame(true);
+        return ser.toByteArray();
+    }
+
+    @Test
+    public void corruptionIsDetectedBeforeDecoding() {
+        final byte[] bytes = booleanFrame();
+        // without checksums, this would be an InvalidBooleanException
+        bytes[bytes.length - Integer.BYTES - 1] = 0x01;
+        final Deserializer des = new Deserializer(bytes);
+        des.setFrameChecksums(true);
+        assertThrows(InvalidChecksumException.class, des::readFrame);
+    }
+
+    @Test
+    public void corruptedChecksum() {
+        final byte[] bytes = booleanFrame();
+        bytes[bytes.length - 1] ^= 0x01;
+        final Deserializer des = new Deserializer(bytes);
+        des.setFrameChecksums(true);
+        assertThrows(InvalidChecksumException.class, des::readFrame);
+    }
+
+    @Test
+    public void corruptedLargeFrame(@TempDir final Path dir) throws IOException {
+        final byte[] bytes = write(OBJECTS);
+        // a number in the middle of the first array
+        bytes[10_000] ^= 0x01;
+        final Path file = dir.resolve("container");
+        Files.write(file, bytes);
+        final ContainerReader reader = ContainerReader.map(file, 1_000);
+        reader.setFrameChecksums(true);
+        assertThrows(InvalidChecksumException.class, () -> reader.read(0));
+        assertEquals(OBJECTS.get(1), reader.read(1));
+        assertThrows(InvalidChecksumException.class, () -> reader(bytes).read(0));
+    }
+
+    @Test
+    public void truncatedFrame() {
+        final byte[] bytes = booleanFrame();
+        final Deserializer des = new Deserializer(bytes, 0, bytes.length - 1);
+        des.setFrameChecksums(true);
+        assertThrows(IllegalStateException.class, des::readFrame);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+public final class GeneratedCodecTest {
+
+    @GenerateCodec
+    record Point(int x, int y) {}
+
+    @GenerateCodec
+    record AllTypes(
+            boolean z, byte b, short s, int i, long l, float f, double d, char c, String str, Optional<Integer> opt) {}
+
+    @GenerateCodec
+    record Box<T>(T value, List<T> values) {}
+
+    @GenerateCodec
+    record Empty() {}
+
+    private static Object roundTrip(final Object obj) {
+        final Serializer ser = new Serializer();
+        ser.write(obj);
+        return new Deserializer(ser.toByteArray()).read();
+    }
+
+    @Test
+    public void registeredAsServices() {
+        final Set<Class<?>> types = ServiceLoader.load(CodecProvider.class).stream()
+                .map(p -> p.get().type())
+                .collect(Collectors.toSet());
+        assertEquals(Set.of(Point.class, AllTypes.class, Box.class, Empty.class), types);
+    }
+
+    @Test
+    public void usedInsteadOfRuntimeCodecs() {
+        assertTrue(RecordCodec.of(Point.class) instanceof CodecProvider);
+        assertEquals(Point.class, RecordCodec.provided(Point.class.getName()));
+    }
+
+    @Test
+    public void sameBytesAsRuntimeCodecs() {
+        final AllTypes r = new AllTypes(true, (byte) 1, (short) -2, 3, -4L, 5.5f, -6.25, 'x', "seven", Optional.of(8));
+        final Serializer expected = new Serializer();
+        new RecordCodec(AllTypes.class).write(expected, r);
+        final Serializer actual = new Serializer();
+        RecordCodec.of(AllTypes.class).write(actual, r);
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    public void roundTrips() {
+        for (final Object r : List.of(
+                new Point(1, -2),
+                new AllTypes(false, (byte) 0, (short) 0, 0, 0L, 0f, 0.0, '\0', "", Optional.empty()),
+                new Box<>("a", List.of("b", "c")),
+                new Empty())) {
+            assertEquals(r, roundTrip(r));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public final class HomogeneousContainersTest {
+
+    private record Point(int x, int y) {}
+
+    private static Stream<Object> containers() {
+        return Stream.of(
+                List.of(1, 2, 3),
+                new ArrayList<>(List.of("a", "b", "c", "d")),
+                new LinkedHashSet<>(List.of(1.5, 2.5, 3.5)),
+                new LinkedHashMap<>(Map.of("a", 1L, "b", 2L, "c", 3L)),
+                List.of(List.of(1, 2, 3), List.of(), new ArrayList<>(List.of(4))),
+                List.of(new Point(1, 2), new Point(3, 4), new Point(5, 6)),
+                // mixed elements
+                List.of(1, 2L, "3"),
+                new LinkedHashMap<>(Map.of("a", 1, "b", 2L, "c", 3)));
+    }
+
+    private static byte[] serialize(final Object obj) {
+        final Serializer ser = new Serializer();
+        ser.write(obj);
+        return ser.toByteArray();
+    }
+
+    @ParameterizedTest
+    @MethodSource("containers")
+    public void roundTrip(final Object obj) {
+        final Deserializer des = new Deserializer(serialize(obj));
+        des.setClassLoader(HomogeneousContainersTest.class.getClassLoader());
+        assertEquals(obj, des.read());
+    }
+
+    @Test
+    public void roundTripArray() {
+        final String[] arr = {"x", "y", "z"};
+        assertArrayEquals(arr, (Object[]) new Deserializer(serialize(arr)).read());
+    }
+
+    @Test
+    public void integers() {
+        assertArrayEquals(
+                new byte[] {
+                    ClassCodes.HOMOGENEOUS,
+                    ClassCodes.LIST.getCode(),
+                    0x00,
+                    0x00,
+                    0x00,
+                    0x03,
+                    ClassCodes.INTEGER.getCode(),
+                    0x00,
+                    0x00,
+                    0x00,
+                    0x01,
+                    0x00,
+                    0x00,
+                    0x00,
+                    0x02,
+                    0x00,
+                    0x00,
+                    0x00,
+                    0x03
+                },
+                serialize(List.of(1, 2, 3)));
+    }
+
+    @Test
+    public void map() {
+        final Serializer expected = new Serializer();
+        expected.write(ClassCodes.HOMOGENEOUS);
+        expected.write(ClassCodes.MAP.getCode());
+        expected.write(3);
+        expected.write(ClassCodes.CHAR.getCode());
+        expected.write(ClassCodes.BOOLEAN.getCode());
+        for (final char c : "abc".toCharArray()) {
+            expected.write(c);
+            expected.write(c == 'b');
+        }
+        final Map<Character, Boolean> map = new LinkedHashMap<>();
+        map.put('a', false);
+        map.put('b', true);
+        map.put('c', false);
+        assertArrayEquals(expected.toByteArray(), serialize(map));
+    }
+
+    @Test
+    public void mixedElementsKeepTheirCodes() {
+        assertEquals(ClassCodes.LIST.getCode(), serialize(List.of(1, 2L, 3))[0]);
+    }
+
+    @Test
+    public void smallContainersKeepTheirCodes() {
+        assertEquals(ClassCodes.LIST.getCode(), serialize(List.of(1, 2))[0]);
+    }
+
+    @Test
+    public void largeList() {
+        final List<Integer> list = IntStream.range(0, 10_000).boxed().collect(Collectors.toList());
+        final byte[] bytes = serialize(list);
+        assertEquals(1 + 1 + 4 + 1 + 10_000 * Integer.BYTES, bytes.length);
+        assertEquals(list, new Deserializer(bytes).read());
+    }
+
+    @Test
+    public void referenceTrackedElementsKeepTheirCodes() {
+        final List<String> list = List.of("a", "a", "a");
+        final Serializer ser = new Serializer();
+        ser.setReferenceTracking(true);
+        ser.write(list);
+        final byte[] bytes = ser.toByteArray();
+        assertEquals(ClassCodes.LIST.getCode(), bytes[0]);
+        final Deserializer des = new Deserializer(bytes);
+        des.setReferenceTracking(true);
+        assertEquals(list, des.read());
+    }
+
+    @Test
+    public void referenceTrackingOfHomogeneousContainers() {
+        final List<Integer> shared = List.of(1, 2, 3);
+        final Serializer ser = new Serializer();
+        ser.setReferenceTracking(true);
+        ser.write(List.of(shared, shared, shared));
+        final Deserializer des = new Deserializer(ser.toByteArray());
+        des.setReferenceTracking(true);
+        assertEquals(List.of(shared, shared, shared), des.read());
+    }
+
+    @Test
+    public void notAContainer() {
+        final byte[] bytes = {
+            ClassCodes.HOMOGENEOUS, ClassCodes.STRING.getCode(), 0x00, 0x00, 0x00, 0x01, ClassCodes.BYTE.getCode(), 0x01
+        };
+        assertThrows(IllegalArgumentException.class, () -> new Deserializer(bytes).read());
+    }
+
+    @Test
+    public void unknownElementCode() {
+        final byte[] bytes = {ClassCodes.HOMOGENEOUS, ClassCodes.LIST.getCode(), 0x00, 0x00, 0x00, 0x01, 0x7f, 0x01};
+        assertThrows(IllegalArgumentException.class, () -> new Deserializer(bytes).read());
+    }
+}
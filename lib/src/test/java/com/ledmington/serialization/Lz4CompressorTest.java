@@ -0,0 +1,136 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public final class Lz4CompressorTest {
+
+    private static byte[] random(final int length, final long seed) {
+        final byte[] b = new byte[length];
+        new Random(seed).nextBytes(b);
+        return b;
+    }
+
+    private static Stream<byte[]> inputs() {
+        final byte[] text =
+                "the quick brown fox jumps over the lazy dog. ".repeat(500).getBytes(StandardCharsets.UTF_8);
+        final byte[] runs = new byte[10_000];
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = (byte) (i / 1000);
+        }
+        final byte[] mixed = new byte[100_000];
+        final Random rnd = new Random(42);
+        for (int i = 0; i < mixed.length; i++) {
+            // few distinct values, so that there are many short matches
+            mixed[i] = (byte) rnd.nextInt(4);
+        }
+        return Stream.of(
+                new byte[0],
+                new byte[] {1},
+                new byte[12],
+                new byte[13],
+                "abcabcabcabcabcabc".getBytes(StandardCharsets.US_ASCII),
+                new byte[70_000],
+                text,
+                runs,
+                mixed,
+                random(1, 1),
+                random(100, 2),
+                random(65_536, 3));
+    }
+
+    private static byte[] compress(final Compressor c, final byte[] input) {
+        final byte[] dst = new byte[3 + c.maxCompressedLength(input.length)];
+        final int n = c.compress(input, 0, input.length, dst, 3);
+        return Arrays.copyOfRange(dst, 3, 3 + n);
+    }
+
+    @ParameterizedTest
+    @MethodSource("inputs")
+    public void roundTrip(final byte[] input) {
+        final Compressor c = Compressor.lz4();
+        final byte[] compressed = compress(c, input);
+        assertTrue(compressed.length <= c.maxCompressedLength(input.length));
+        final byte[] output = new byte[input.length + 2];
+        c.decompress(compressed, 0, compressed.length, output, 1, input.length);
+        assertArrayEquals(input, Arrays.copyOfRange(output, 1, 1 + input.length));
+    }
+
+    @ParameterizedTest
+    @MethodSource("inputs")
+    public void reusedInstance(final byte[] input) {
+        final Compressor c = Compressor.lz4();
+        // the hash table is full of positions of another input
+        compress(c, random(5_000, 7));
+        final byte[] compressed = compress(c, input);
+        final byte[] output = new byte[input.length];
+        Compressor.lz4().decompress(compressed, 0, compressed.length, output, 0, input.length);
+        assertArrayEquals(input, output);
+    }
+
+    @Test
+    public void compressible() {
+        final byte[] input = new byte[10_000];
+        assertTrue(compress(Compressor.lz4(), input).length < 100);
+    }
+
+    @Test
+    public void wrongLength() {
+        final Compressor c = Compressor.lz4();
+        final byte[] compressed = compress(c, new byte[100]);
+        assertThrows(
+                InvalidBlockException.class,
+                () -> c.decompress(compressed, 0, compressed.length, new byte[99], 0, 99));
+        assertThrows(
+                InvalidBlockException.class,
+                () -> c.decompress(compressed, 0, compressed.length, new byte[101], 0, 101));
+    }
+
+    @Test
+    public void invalidOffset() {
+        // one literal followed by a match 2 bytes back
+        final byte[] compressed = {0x10, 0x01, 0x02, 0x00};
+        assertThrows(
+                InvalidBlockException.class, () -> Compressor.lz4().decompress(compressed, 0, 4, new byte[5], 0, 5));
+    }
+
+    @Test
+    public void truncated() {
+        final Compressor c = Compressor.lz4();
+        final byte[] input = "abcabcabcabcabcabcabcabcabc".getBytes(StandardCharsets.US_ASCII);
+        final byte[] compressed = compress(c, input);
+        for (int i = 0; i < compressed.length; i++) {
+            final int n = i;
+            assertThrows(
+                    InvalidBlockException.class,
+                    () -> c.decompress(compressed, 0, n, new byte[input.length], 0, input.length));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public final class MappedFileTest {
+
+    @TempDir
+    private Path dir;
+
+    private Path writeFile() throws IOException {
+        final Path file = dir.resolve("values.bin");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            final Serializer ser = Serializer.to(out);
+            TestValues.writeValues(ser);
+            ser.flush();
+        }
+        return file;
+    }
+
+    @Test
+    public void readMappedFile() throws IOException {
+        TestValues.readValues(Deserializer.map(writeFile()));
+    }
+
+    @Test
+    public void readMultipleWindows() throws IOException {
+        // values straddle the boundaries between windows
+        TestValues.readValues(Deserializer.map(writeFile(), 1001L));
+    }
+
+    @Test
+    public void stitchValuesAtEveryOffset() throws IOException {
+        final Path file = dir.resolve("primitives.bin");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            final Serializer ser = Serializer.to(out);
+            for (int i = 0; i < 50; i++) {
+                ser.write((byte) i);
+                ser.write(0x0102030405060708L * i);
+                ser.write(i * 0x01020304);
+                ser.write((short) i);
+                ser.write("s" + i);
+            }
+            ser.flush();
+        }
+        // every window is smaller than a long, so that each value crosses a boundary at a different offset
+        for (long windowSize = 1L; windowSize < 8L; windowSize++) {
+            final Deserializer des = Deserializer.map(file, windowSize);
+            for (int i = 0; i < 50; i++) {
+                assertEquals((byte) i, des.readByte());
+                assertEquals(0x0102030405060708L * i, des.readLong());
+                assertEquals(i * 0x01020304, des.readInt());
+                assertEquals((short) i, des.readShort());
+                assertEquals("s" + i, des.read());
+            }
+            assertFalse(des.hasRemaining());
+        }
+    }
+
+    @Test
+    public void cantMapEmptyFile() throws IOException {
+        final Path file = Files.createFile(dir.resolve("empty.bin"));
+        assertThrows(IllegalArgumentException.class, () -> Deserializer.map(file));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public final class PrimitiveArraysTest {
+
+    private static final Random rnd = new Random(42);
+
+    @Test
+    public void serializeIntArray() {
+        final Serializer ser = new Serializer();
+        ser.write(new int[] {0x12345678, -1});
+        assertArrayEquals(
+                new byte[] {
+                    ClassCodes.INT_ARRAY.getCode(),
+                    0x00,
+                    0x00,
+                    0x00,
+                    0x02,
+                    0x12,
+                    0x34,
+                    0x56,
+                    0x78,
+                    (byte) 0xff,
+                    (byte) 0xff,
+                    (byte) 0xff,
+                    (byte) 0xff
+                },
+                ser.toByteArray());
+    }
+
+    @Test
+    public void elementsKeepFixedWidthWithVariableLengthEncoding() {
+        final Serializer ser = new Serializer();
+        ser.setVariableLengthEncoding(true);
+        ser.write(new long[] {1L});
+        assertArrayEquals(
+                new byte[] {ClassCodes.LONG_ARRAY.getCode(), 0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01},
+                ser.toByteArray());
+    }
+
+    private static Stream<Arguments> arrays() {
+        final int n = 100_000;
+        final byte[] bytes = new byte[n];
+        rnd.nextBytes(bytes);
+        final boolean[] booleans = new boolean[n];
+        final short[] shorts = new short[n];
+        final int[] ints = new int[n];
+        final long[] longs = new long[n];
+        final float[] floats = new float[n];
+        final double[] doubles = new double[n];
+        final char[] chars = new char[n];
+        for (int i = 0; i < n; i++) {
+            booleans[i] = rnd.nextBoolean();
+            shorts[i] = (short) rnd.nextInt();
+            ints[i] = rnd.nextInt();
+            longs[i] = rnd.nextLong();
+            floats[i] = rnd.nextFloat();
+            doubles[i] = rnd.nextDouble();
+            chars[i] = (char) rnd.nextInt();
+        }
+        return Stream.of(
+                Arguments.of(new byte[0]),
+                Arguments.of(new double[0]),
+                Arguments.of(bytes),
+                Arguments.of(booleans),
+                Arguments.of(shorts),
+                Arguments.of(ints),
+                Arguments.of(longs),
+                Arguments.of(floats),
+                Arguments.of(doubles),
+                Arguments.of(chars));
+    }
+
+    @ParameterizedTest
+    @MethodSource("arrays")
+    public void roundTrip(final Object arr) {
+        final Serializer ser = new Serializer();
+        ser.write(arr);
+        final Object deserialized = new Deserializer(ser.toByteArray()).read();
+        assertEquals(arr.getClass(), deserialized.getClass());
+        assertArrayEquals(new Object[] {arr}, new Object[] {deserialized});
+    }
+
+    @ParameterizedTest
+    @MethodSource("arrays")
+    public void streamingRoundTrip(final Object arr) {
+        // buffers which are not a multiple of the element sizes
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final Serializer ser = Serializer.to(baos, 13);
+        ser.write(arr);
+        ser.flush();
+        final Object deserialized = Deserializer.from(new ByteArrayInputStream(baos.toByteArray()), 11)
+                .read();
+        assertArrayEquals(new Object[] {arr}, new Object[] {deserialized});
+    }
+
+    @Test
+    public void wrongLength() {
+        final Deserializer des = new Deserializer(
+                new byte[] {ClassCodes.LONG_ARRAY.getCode(), 0x00, 0x00, 0x00, 0x02, 0, 0, 0, 0, 0, 0, 0, 0});
+        assertThrows(IllegalStateException.class, des::read);
+    }
+}
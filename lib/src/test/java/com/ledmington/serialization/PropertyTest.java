@@ -17,14 +17,27 @@
 */
 package com.ledmington.serialization;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -85,4 +98,59 @@ public final class PropertyTest {
         assertEquals(obj, deserialized);
         assertEquals(deserialized, obj);
     }
+
+    private static Stream<Arguments> strings() {
+        return Stream.of(
+                Arguments.of(""),
+                Arguments.of("ascii"),
+                Arguments.of("\u00e0\u00e8\u00ec\u00f2\u00f9"),
+                Arguments.of("\u65e5\u672c\u8a9e"),
+                Arguments.of("emoji \ud83d\ude00"),
+                Arguments.of("unpaired \ud83d surrogate"),
+                Arguments.of("\ude00 reversed \ud83d"),
+                Arguments.of("x".repeat(100_000)),
+                Arguments.of("\u20ac".repeat(100_000)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("strings")
+    public void eachStringShouldBeEqualToTheDeserializedOne(final String s) {
+        final Serializer ser = new Serializer();
+        ser.write(s);
+        assertEquals(s, new Deserializer(ser.toByteArray()).read());
+
+        // same with streaming, where the String may not fit in the internal buffers
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final Serializer streaming = Serializer.to(baos, 16);
+        streaming.write(s);
+        streaming.flush();
+        assertEquals(s, Deserializer.from(new ByteArrayInputStream(baos.toByteArray()), 16).read());
+    }
+
+    private static Stream<Arguments> collections() {
+        return Stream.of(
+                Arguments.of(List.of()),
+                Arguments.of(new ArrayList<>(List.of(1, "two", 3.0))),
+                Arguments.of(new LinkedList<>(List.of('a', 'b'))),
+                Arguments.of(new TreeSet<>(Set.of(3L, 1L, 2L))),
+                Arguments.of(new HashMap<>(Map.of("a", 1, "b", 2))),
+                Arguments.of(new TreeMap<>(Map.of(1, List.of(Optional.of(Set.of("nested")))))),
+                Arguments.of(IntStream.range(0, 10_000).boxed().collect(Collectors.toList())));
+    }
+
+    @ParameterizedTest
+    @MethodSource("collections")
+    public void eachCollectionShouldBeEqualToTheDeserializedOne(final Object obj) {
+        final Serializer ser = new Serializer();
+        ser.write(obj);
+        assertEquals(obj, new Deserializer(ser.toByteArray()).read());
+    }
+
+    @Test
+    public void arraysShouldBeEqualToTheDeserializedOnes() {
+        final Object[] arr = {1, "two", new Object[] {3.0f}, List.of('4')};
+        final Serializer ser = new Serializer();
+        ser.write(arr);
+        assertArrayEquals(arr, (Object[]) new Deserializer(ser.toByteArray()).read());
+    }
 }
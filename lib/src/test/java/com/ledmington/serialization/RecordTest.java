@@ -0,0 +1,205 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+public final class RecordTest {
+
+    public record Point(int x, int y) {}
+
+    private record AllTypes(
+            boolean z, byte b, short s, int i, long l, float f, double d, char c, String str, Optional<Integer> opt) {}
+
+    private record Nested(Point p, List<Point> points, Map<String, Point> named, double[] samples) {}
+
+    private record Positive(int value) {
+        Positive {
+            if (value <= 0) {
+                throw new IllegalArgumentException("Not positive.");
+            }
+        }
+    }
+
+    private record Empty() {}
+
+    private static Deserializer deserializer(final byte[] bytes) {
+        final Deserializer des = new Deserializer(bytes);
+        des.setClassLoader(RecordTest.class.getClassLoader());
+        return des;
+    }
+
+    private static Object roundTrip(final Object obj) {
+        final Serializer ser = new Serializer();
+        ser.write(obj);
+        return deserializer(ser.toByteArray()).read();
+    }
+
+    /**
+     * Returns a Serializer containing the class code and the definition of the first record class of a stream.
+     */
+    private static Serializer recordHeader(final String name) {
+        final Serializer ser = new Serializer();
+        ser.write(ClassCodes.RECORD.getCode());
+        ser.write((byte) 0x01);
+        ser.write(Serializer.STRING_LATIN1);
+        ser.write(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            ser.write((byte) name.charAt(i));
+        }
+        return ser;
+    }
+
+    @Test
+    public void serializePoint() {
+        final Serializer ser = new Serializer();
+        ser.write(new Point(1, 2));
+        final Serializer expected = recordHeader(Point.class.getName());
+        expected.write(1);
+        expected.write(2);
+        assertArrayEquals(expected.toByteArray(), ser.toByteArray());
+    }
+
+    @Test
+    public void allTypes() {
+        final AllTypes r = new AllTypes(true, (byte) 1, (short) 2, 3, 4L, 5.0f, 6.0, '7', "eight", Optional.of(9));
+        assertEquals(r, roundTrip(r));
+    }
+
+    @Test
+    public void nested() {
+        final Nested r = new Nested(
+                new Point(1, 2), List.of(new Point(3, 4)), Map.of("five", new Point(5, 6)), new double[] {7.0});
+        final Nested deserialized = (Nested) roundTrip(r);
+        assertEquals(r.p(), deserialized.p());
+        assertEquals(r.points(), deserialized.points());
+        assertEquals(r.named(), deserialized.named());
+        assertArrayEquals(r.samples(), deserialized.samples());
+    }
+
+    @Test
+    public void empty() {
+        assertEquals(new Empty(), roundTrip(new Empty()));
+    }
+
+    @Test
+    public void manyRecords() {
+        final Serializer ser = new Serializer();
+        for (int i = 0; i < 1000; i++) {
+            ser.write(new Point(i, -i));
+        }
+        final Deserializer des = deserializer(ser.toByteArray());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(new Point(i, -i), des.read());
+        }
+    }
+
+    @Test
+    public void canonicalConstructorIsInvoked() {
+        final Serializer ser = recordHeader(Positive.class.getName());
+        ser.write(-1);
+        final byte[] bytes = ser.toByteArray();
+        final IllegalArgumentException e =
+                assertThrows(IllegalArgumentException.class, () -> deserializer(bytes).read());
+        assertEquals("Not positive.", e.getMessage());
+    }
+
+    @Test
+    public void notARecord() {
+        final byte[] bytes = recordHeader(String.class.getName()).toByteArray();
+        assertThrows(IllegalArgumentException.class, () -> deserializer(bytes).read());
+    }
+
+    @Test
+    public void unknownClass() {
+        final byte[] bytes = recordHeader("com.example.DoesNotExist").toByteArray();
+        assertThrows(IllegalArgumentException.class, () -> deserializer(bytes).read());
+    }
+
+    @Test
+    public void classNameWrittenOnce() {
+        final Serializer ser = new Serializer();
+        ser.write(new Point(1, 2));
+        final long first = ser.size();
+        ser.write(new Point(3, 4));
+        // class code, class index and two ints
+        assertEquals(1 + 1 + 2 * Integer.BYTES, ser.size() - first);
+        final Deserializer des = deserializer(ser.toByteArray());
+        assertEquals(new Point(1, 2), des.read());
+        assertEquals(new Point(3, 4), des.read());
+    }
+
+    @Test
+    public void unknownClassIndex() {
+        final Serializer ser = new Serializer();
+        ser.write(ClassCodes.RECORD.getCode());
+        ser.write((byte) 0x02);
+        final byte[] bytes = ser.toByteArray();
+        assertThrows(InvalidReferenceException.class, () -> deserializer(bytes).read());
+    }
+
+    @Test
+    public void redefinedClass() {
+        final Serializer ser = recordHeader(Point.class.getName());
+        ser.write(1);
+        ser.write(2);
+        final byte[] first = ser.toByteArray();
+        // the same definition, index included, repeated
+        final byte[] bytes = Arrays.copyOf(first, 2 * first.length);
+        System.arraycopy(first, 0, bytes, first.length, first.length);
+        final Deserializer des = deserializer(bytes);
+        assertEquals(new Point(1, 2), des.read());
+        assertThrows(InvalidRecordTypeException.class, des::read);
+    }
+
+    @Test
+    public void notAllowedByDefault() {
+        final Serializer ser = new Serializer();
+        ser.write(new Point(1, 2));
+        final byte[] bytes = ser.toByteArray();
+        assertThrows(IllegalArgumentException.class, () -> new Deserializer(bytes).read());
+    }
+
+    @Test
+    public void registeredRecord() {
+        final CodecRegistry registry = CodecRegistry.builder().register(Point.class, (byte) 0x40).build();
+        final Serializer ser = new Serializer();
+        ser.setCodecRegistry(registry);
+        ser.write(new Point(1, 2));
+        ser.write("end");
+        final byte[] bytes = ser.toByteArray();
+        // no class name
+        assertEquals((byte) 0x40, bytes[0]);
+        assertEquals(1 + 2 * Integer.BYTES, bytes.length - (1 + 1 + Integer.BYTES + 3));
+        final Deserializer des = new Deserializer(bytes);
+        des.setCodecRegistry(registry);
+        assertEquals(new Point(1, 2), des.read());
+        des.reset(bytes);
+        des.skip();
+        assertEquals("end", des.read());
+    }
+}
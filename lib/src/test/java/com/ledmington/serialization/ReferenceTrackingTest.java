@@ -0,0 +1,158 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+public final class ReferenceTrackingTest {
+
+    private record Event(String tenant, String label, List<Integer> tags) {}
+
+    private static byte[] serialize(final Object obj, final boolean tracking) {
+        final Serializer ser = new Serializer();
+        ser.setReferenceTracking(tracking);
+        ser.write(obj);
+        return ser.toByteArray();
+    }
+
+    private static Object deserialize(final byte[] bytes) {
+        final Deserializer des = new Deserializer(bytes);
+        des.setReferenceTracking(true);
+        des.setClassLoader(ReferenceTrackingTest.class.getClassLoader());
+        return des.read();
+    }
+
+    @Test
+    public void disabledByDefault() {
+        assertEquals(false, new Serializer().isReferenceTracking());
+        assertEquals(false, new Deserializer(new byte[] {0}).isReferenceTracking());
+    }
+
+    @Test
+    public void repeatedString() {
+        final Serializer expected = new Serializer();
+        expected.write(ClassCodes.LIST.getCode());
+        expected.write(2);
+        expected.write(ClassCodes.STRING.getCode());
+        expected.write(Serializer.STRING_LATIN1);
+        expected.write(1);
+        expected.write((byte) 'a');
+        expected.write(ClassCodes.REFERENCE);
+        expected.write((byte) 0);
+        // a different instance with the same content
+        final List<String> list = List.of("a", new String("a"));
+        assertArrayEquals(expected.toByteArray(), serialize(list, true));
+        assertEquals(list, deserialize(expected.toByteArray()));
+    }
+
+    @Test
+    public void smallerPayload() {
+        final List<Event> events = IntStream.range(0, 1000)
+                .mapToObj(i -> new Event("tenant-" + (i % 3), "label-" + (i % 5), List.of(i)))
+                .toList();
+        final byte[] plain = serialize(events, false);
+        final byte[] tracked = serialize(events, true);
+        assertTrue(tracked.length < plain.length / 2);
+        assertEquals(events, deserialize(tracked));
+    }
+
+    @Test
+    public void sharedObjects() {
+        final List<Integer> shared = new ArrayList<>(List.of(1, 2, 3));
+        final Map<String, List<Integer>> map = Map.of("x", shared, "y", shared);
+        @SuppressWarnings("unchecked")
+        final Map<String, List<Integer>> decoded = (Map<String, List<Integer>>) deserialize(serialize(map, true));
+        assertEquals(map, decoded);
+        assertSame(decoded.get("x"), decoded.get("y"));
+    }
+
+    @Test
+    public void equalObjectsAreNotShared() {
+        final List<List<Integer>> list = List.of(new ArrayList<>(List.of(1)), new ArrayList<>(List.of(1)));
+        @SuppressWarnings("unchecked")
+        final List<List<Integer>> decoded = (List<List<Integer>>) deserialize(serialize(list, true));
+        assertEquals(list, decoded);
+        assertNotSame(decoded.get(0), decoded.get(1));
+    }
+
+    @Test
+    public void sharedRecords() {
+        final Event e = new Event("t", "l", List.of());
+        @SuppressWarnings("unchecked")
+        final List<Event> decoded = (List<Event>) deserialize(serialize(Collections.nCopies(3, e), true));
+        assertEquals(List.of(e, e, e), decoded);
+        assertSame(decoded.get(0), decoded.get(2));
+    }
+
+    @Test
+    public void withVariableLengthEncoding() {
+        final List<String> list = Collections.nCopies(200, "abc");
+        final Serializer ser = new Serializer();
+        ser.setReferenceTracking(true);
+        ser.setVariableLengthEncoding(true);
+        ser.write(list);
+        final Deserializer des = new Deserializer(ser.toByteArray());
+        des.setReferenceTracking(true);
+        des.setVariableLengthEncoding(true);
+        assertEquals(list, des.read());
+    }
+
+    @Test
+    public void cyclesAreRejected() {
+        final List<Object> outer = new ArrayList<>();
+        final List<Object> inner = new ArrayList<>(List.of("a", outer));
+        outer.add(inner);
+        final Serializer ser = new Serializer();
+        ser.setReferenceTracking(true);
+        assertThrows(IllegalArgumentException.class, () -> ser.write(Map.of("k", outer)));
+        // values which are shared, but not cyclic, are still indexed in the same order
+        ser.reset();
+        final List<Object> shared = new ArrayList<>(List.of("a"));
+        ser.write(List.of(shared, List.of(shared, "a"), shared));
+        @SuppressWarnings("unchecked")
+        final List<List<Object>> decoded = (List<List<Object>>) deserialize(ser.toByteArray());
+        assertEquals(List.of(shared, List.of(shared, "a"), shared), decoded);
+        assertSame(decoded.get(0), decoded.get(1).get(0));
+        assertSame(decoded.get(0), decoded.get(2));
+    }
+
+    @Test
+    public void invalidReference() {
+        final byte[] bytes = {ClassCodes.REFERENCE, 0};
+        assertThrows(InvalidReferenceException.class, () -> deserialize(bytes));
+    }
+
+    @Test
+    public void referenceWithoutTracking() {
+        final Deserializer des = new Deserializer(serialize(List.of("a", "a"), true));
+        assertThrows(IllegalArgumentException.class, des::read);
+    }
+}
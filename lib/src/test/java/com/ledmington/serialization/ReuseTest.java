@@ -0,0 +1,164 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+public final class ReuseTest {
+
+    private static byte[] serialize(final Object obj) {
+        final Serializer ser = new Serializer();
+        ser.write(obj);
+        return ser.toByteArray();
+    }
+
+    @Test
+    public void resetSerializer() {
+        final Serializer ser = new Serializer();
+        ser.write("a long string which makes the buffer grow");
+        final byte[] internal = ser.toByteBuffer().array();
+        ser.reset();
+        assertEquals(0L, ser.size());
+        ser.write(1);
+        assertArrayEquals(new byte[] {0x00, 0x00, 0x00, 0x01}, ser.toByteArray());
+        assertSame(internal, ser.toByteBuffer().array());
+    }
+
+    @Test
+    public void resetKeepsSettings() {
+        final Serializer ser = new Serializer();
+        ser.setVariableLengthEncoding(true);
+        ser.reset();
+        assertTrue(ser.isVariableLengthEncoding());
+    }
+
+    @Test
+    public void resetClearsReferences() {
+        final Serializer ser = new Serializer();
+        ser.setReferenceTracking(true);
+        ser.write("a");
+        final byte[] first = ser.toByteArray();
+        ser.reset();
+        ser.write("a");
+        assertArrayEquals(first, ser.toByteArray());
+
+        final Deserializer des = new Deserializer(first);
+        des.setReferenceTracking(true);
+        des.read();
+        des.reset(new byte[] {ClassCodes.REFERENCE, 0x00});
+        assertThrows(InvalidReferenceException.class, des::read);
+    }
+
+    @Test
+    public void resetDeserializer() {
+        final Deserializer des = new Deserializer(serialize("x"));
+        assertEquals("x", des.read());
+        des.reset(serialize(List.of(1, 2, 3)));
+        assertEquals(List.of(1, 2, 3), des.read());
+        assertFalse(des.hasRemaining());
+    }
+
+    @Test
+    public void resetDeserializerSlice() {
+        final byte[] bytes = {0x00, 0x00, 0x00, 0x00, 0x2a, 0x00};
+        final Deserializer des = new Deserializer(new byte[] {1});
+        des.reset(bytes, 1, 4);
+        assertEquals(42, des.readInt());
+        assertFalse(des.hasRemaining());
+    }
+
+    @Test
+    public void resetStreamingDeserializer() {
+        final Deserializer des = Deserializer.from(new ByteArrayInputStream(serialize(1L)));
+        des.reset(serialize(2L));
+        assertEquals(2L, des.read());
+        assertFalse(des.hasRemaining());
+    }
+
+    @Test
+    public void resetWithInvalidInput() {
+        final Deserializer des = new Deserializer(new byte[] {1});
+        assertThrows(NullPointerException.class, () -> des.reset(null));
+        assertThrows(IllegalArgumentException.class, () -> des.reset(new byte[0]));
+        assertThrows(IndexOutOfBoundsException.class, () -> des.reset(new byte[2], 1, 2));
+    }
+
+    @Test
+    public void poolReusesInstances() {
+        final SerializationPool pool = new SerializationPool(1);
+        final Serializer ser = pool.borrowSerializer();
+        ser.write(1);
+        pool.release(ser);
+        final Serializer again = pool.borrowSerializer();
+        assertSame(ser, again);
+        assertEquals(0L, again.size());
+        assertNotSame(again, pool.borrowSerializer());
+
+        final Deserializer des = pool.borrowDeserializer(serialize(1));
+        pool.release(des);
+        assertSame(des, pool.borrowDeserializer(serialize(2)));
+        assertEquals(2, des.read());
+    }
+
+    @Test
+    public void releaseDropsTheInput() {
+        final SerializationPool pool = new SerializationPool(1);
+        final Deserializer des = pool.borrowDeserializer(serialize(List.of(1, 2)));
+        des.setReferenceTracking(true);
+        pool.release(des);
+        assertFalse(des.hasRemaining());
+        assertThrows(IllegalStateException.class, des::read);
+    }
+
+    @Test
+    public void poolIsBounded() {
+        final SerializationPool pool = new SerializationPool(1);
+        final Serializer a = pool.borrowSerializer();
+        final Serializer b = pool.borrowSerializer();
+        pool.release(a);
+        pool.release(b);
+        assertSame(a, pool.borrowSerializer());
+        assertNotSame(b, pool.borrowSerializer());
+    }
+
+    @Test
+    public void invalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new SerializationPool(0));
+    }
+
+    @Test
+    public void concurrentUse() {
+        final SerializationPool pool = new SerializationPool(4);
+        IntStream.range(0, 10_000).parallel().forEach(i -> {
+            final List<Object> obj = List.of(i, "value-" + i, (long) i);
+            assertEquals(obj, pool.deserialize(pool.serialize(obj)));
+        });
+    }
+}
@@ -0,0 +1,199 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public final class SkipTest {
+
+    private record Point(int x, int y) {}
+
+    private record Everything(
+            boolean z, byte b, short s, int i, long l, float f, double d, char c, String str, Point p) {}
+
+    private static final int MARKER = 0xcafebabe;
+
+    private static Stream<Object> values() {
+        return Stream.of(
+                true,
+                (byte) 1,
+                (short) -300,
+                123_456,
+                -1L,
+                1.5f,
+                2.5,
+                'x',
+                Optional.empty(),
+                Optional.of("present"),
+                "latin",
+                "utf-8 è€",
+                "utf-16 😀",
+                List.of(1, 2L, "3"),
+                List.of(1, 2, 3),
+                new LinkedHashSet<>(List.of(1.5, 2.5, 3.5)),
+                new LinkedHashMap<>(Map.of("a", 1, "b", 2L)),
+                new LinkedHashMap<>(Map.of("a", 1L, "b", 2L, "c", 3L)),
+                new Object[] {"a", 1, 2L},
+                new String[] {"x", "y", "z"},
+                new byte[] {1, 2, 3},
+                new boolean[] {true, false},
+                new short[] {1, 2},
+                new int[] {1, 2, 3},
+                new long[] {4L},
+                new float[] {1f, 2f},
+                new double[] {3.0},
+                new char[] {'a', 'b'},
+                new Point(1, 2),
+                List.of(new Point(1, 2), new Point(3, 4), new Point(5, 6)),
+                new Everything(true, (byte) 1, (short) 2, 3, 4L, 5f, 6.0, '7', "8", new Point(9, 10)),
+                new ArrayList<>(List.of(List.of(), List.of(Optional.of(List.of(1, 2, 3))))));
+    }
+
+    private static Stream<Arguments> valuesAndEncodings() {
+        return values().flatMap(v -> Stream.of(Arguments.of(v, false), Arguments.of(v, true)));
+    }
+
+    private static byte[] serialize(final Object obj, final boolean varint) {
+        final Serializer ser = new Serializer();
+        ser.setVariableLengthEncoding(varint);
+        ser.write(obj);
+        ser.write(MARKER);
+        return ser.toByteArray();
+    }
+
+    @ParameterizedTest
+    @MethodSource("valuesAndEncodings")
+    public void skip(final Object obj, final boolean varint) {
+        final Deserializer des = new Deserializer(serialize(obj, varint));
+        des.setClassLoader(SkipTest.class.getClassLoader());
+        des.setVariableLengthEncoding(varint);
+        des.skip();
+        assertEquals(MARKER, des.readInt());
+        assertFalse(des.hasRemaining());
+    }
+
+    @ParameterizedTest
+    @MethodSource("valuesAndEncodings")
+    public void skipStreaming(final Object obj, final boolean varint) {
+        final Deserializer des = Deserializer.from(new ByteArrayInputStream(serialize(obj, varint)), 8);
+        des.setClassLoader(SkipTest.class.getClassLoader());
+        des.setVariableLengthEncoding(varint);
+        des.skip();
+        assertEquals(MARKER, des.readInt());
+        assertFalse(des.hasRemaining());
+    }
+
+    @Test
+    public void skipMany() {
+        final Serializer ser = new Serializer();
+        values().forEach(ser::write);
+        ser.write("last");
+        final Deserializer des = new Deserializer(ser.toByteArray());
+        des.setClassLoader(SkipTest.class.getClassLoader());
+        des.skip((int) values().count());
+        assertEquals("last", des.read());
+    }
+
+    @Test
+    public void skipNothing() {
+        final Deserializer des = new Deserializer(new byte[] {ClassCodes.BYTE.getCode(), 0x01});
+        des.skip(0);
+        assertEquals((byte) 1, des.read());
+    }
+
+    @Test
+    public void negativeCount() {
+        final Deserializer des = new Deserializer(new byte[] {ClassCodes.BYTE.getCode(), 0x01});
+        assertThrows(IllegalArgumentException.class, () -> des.skip(-1));
+    }
+
+    @Test
+    public void truncated() {
+        final byte[] bytes = {ClassCodes.BYTE_ARRAY.getCode(), 0x00, 0x00, 0x00, 0x10, 0x01};
+        assertThrows(IllegalStateException.class, () -> new Deserializer(bytes).skip());
+    }
+
+    @Test
+    public void unknownClassCode() {
+        assertThrows(IllegalArgumentException.class, () -> new Deserializer(new byte[] {0x7f}).skip());
+    }
+
+    @Test
+    public void invalidOptional() {
+        final byte[] bytes = {ClassCodes.OPTIONAL.getCode(), 0x01};
+        assertThrows(InvalidOptionalException.class, () -> new Deserializer(bytes).skip());
+    }
+
+    @Test
+    public void referenceTracking() {
+        final List<String> shared = List.of("a", "b");
+        final Serializer ser = new Serializer();
+        ser.setReferenceTracking(true);
+        ser.write(shared);
+        ser.write(shared);
+        ser.write("b");
+        final Deserializer des = new Deserializer(ser.toByteArray());
+        des.setReferenceTracking(true);
+        des.skip();
+        // the skipped values can still be referenced
+        assertEquals(shared, des.read());
+        assertEquals("b", des.read());
+    }
+
+    @Test
+    public void userCodec() {
+        final byte code = (byte) 0x40;
+        final CodecRegistry registry = CodecRegistry.builder()
+                .register(StringBuilder.class, code, new Codec<>() {
+                    @Override
+                    public void write(final Serializer ser, final StringBuilder value) {
+                        ser.write(value.toString());
+                    }
+
+                    @Override
+                    public StringBuilder read(final Deserializer des) {
+                        return new StringBuilder((String) des.read());
+                    }
+                })
+                .build();
+        final Serializer ser = new Serializer();
+        ser.setCodecRegistry(registry);
+        ser.write(new StringBuilder("skipped"));
+        ser.write(MARKER);
+        final Deserializer des = new Deserializer(ser.toByteArray());
+        des.setCodecRegistry(registry);
+        des.skip();
+        assertEquals(MARKER, des.readInt());
+    }
+}
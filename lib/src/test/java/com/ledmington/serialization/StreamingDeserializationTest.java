@@ -0,0 +1,127 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+public final class StreamingDeserializationTest {
+
+    @Test
+    public void readFromStream() {
+        TestValues.readValues(Deserializer.from(new ByteArrayInputStream(TestValues.serialized())));
+    }
+
+    @Test
+    public void readFromStreamWithSmallBuffer() {
+        TestValues.readValues(Deserializer.from(new ByteArrayInputStream(TestValues.serialized()), 9));
+    }
+
+    @Test
+    public void readFromChannel() {
+        TestValues.readValues(
+                Deserializer.from(Channels.newChannel(new ByteArrayInputStream(TestValues.serialized())), 100));
+    }
+
+    @Test
+    public void readBeforeStreamEnds() {
+        // a stream which delivers only the first value and then fails, as if the rest never arrived
+        final InputStream input = new InputStream() {
+            private boolean first = true;
+
+            @Override
+            public int read() {
+                throw new AssertionError();
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) {
+                if (!first) {
+                    throw new AssertionError("Read past the first value.");
+                }
+                first = false;
+                b[off] = 0x12;
+                b[off + 1] = 0x34;
+                b[off + 2] = 0x56;
+                b[off + 3] = 0x78;
+                return 4;
+            }
+        };
+        assertEquals(0x12345678, Deserializer.from(input).readInt());
+    }
+
+    @Test
+    public void bufferTooSmall() {
+        assertThrows(
+                IllegalArgumentException.class, () -> Deserializer.from(new ByteArrayInputStream(new byte[1]), 7));
+    }
+
+    @ParameterizedTest
+    @EnumSource(
+            value = ClassCodes.class,
+            names = {"LIST", "SET", "MAP", "ARRAY", ".*_ARRAY"},
+            mode = EnumSource.Mode.MATCH_ANY)
+    public void hugeLengthInShortStream(final ClassCodes code) {
+        // a corrupted length must not allocate more than the stream holds
+        final byte[] bytes = {code.getCode(), 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xf0};
+        final Deserializer des = Deserializer.from(new ByteArrayInputStream(bytes));
+        assertThrows(IllegalStateException.class, des::read);
+    }
+
+    @Test
+    public void hugeStringLengthInShortStream() {
+        final byte[] bytes = {ClassCodes.STRING.getCode(), 0x02, 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xf0};
+        final Deserializer des = Deserializer.from(new ByteArrayInputStream(bytes));
+        assertThrows(IllegalStateException.class, des::read);
+    }
+
+    @Test
+    public void largeArraysGrowWhileStreaming() {
+        final long[] longs = new long[1_000_000];
+        final Object[] objects = new Object[100_000];
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = i * 31L;
+        }
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = i;
+        }
+        final Serializer ser = new Serializer();
+        ser.write(longs);
+        ser.write(objects);
+        final Deserializer des = Deserializer.from(new ByteArrayInputStream(ser.toByteArray()));
+        assertArrayEquals(longs, (long[]) des.read());
+        assertArrayEquals(objects, (Object[]) des.read());
+    }
+
+    @Test
+    public void emptyStream() {
+        final Deserializer des = Deserializer.from(InputStream.nullInputStream());
+        assertFalse(des.hasRemaining());
+        assertThrows(IllegalStateException.class, des::readByte);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+
+import org.junit.jupiter.api.Test;
+
+public final class StreamingSerializationTest {
+
+    @Test
+    public void writeToStream() {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final Serializer ser = Serializer.to(baos);
+        TestValues.writeValues(ser);
+        ser.flush();
+        assertEquals(baos.size(), ser.size());
+        assertArrayEquals(TestValues.serialized(), baos.toByteArray());
+    }
+
+    @Test
+    public void writeToChannel() {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final Serializer ser = Serializer.to(Channels.newChannel(baos), 100);
+        TestValues.writeValues(ser);
+        ser.flush();
+        assertArrayEquals(TestValues.serialized(), baos.toByteArray());
+    }
+
+    @Test
+    public void bufferIsFlushedWhenFull() {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final Serializer ser = Serializer.to(baos, 16);
+        for (int i = 0; i < 5; i++) {
+            ser.write(0L);
+        }
+        assertEquals(32, baos.size());
+        assertEquals(40, ser.size());
+        ser.flush();
+        assertEquals(40, baos.size());
+    }
+
+    @Test
+    public void flushAlsoFlushesTheStream() {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final BufferedOutputStream buffered = new BufferedOutputStream(baos, 1024);
+        final Serializer ser = Serializer.to(buffered, 16);
+        for (int i = 0; i < 5; i++) {
+            ser.write(0L);
+        }
+        // filling the buffer of the Serializer does not flush the stream
+        assertEquals(0, baos.size());
+        ser.flush();
+        assertEquals(40, baos.size());
+    }
+
+    @Test
+    public void bufferTooSmall() {
+        assertThrows(IllegalArgumentException.class, () -> Serializer.to(new ByteArrayOutputStream(), 7));
+    }
+
+    @Test
+    public void ioErrorsAreUnchecked() {
+        final Serializer ser = Serializer.to(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException();
+            }
+        });
+        ser.write(0);
+        assertThrows(UncheckedIOException.class, ser::flush);
+        assertTrue(ser.size() > 0);
+    }
+}
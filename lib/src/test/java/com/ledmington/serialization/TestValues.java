@@ -0,0 +1,68 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+
+/**
+ * The values shared by the tests which check that different inputs and outputs carry the same bytes.
+ */
+final class TestValues {
+
+    static final int N = 10_000;
+
+    private TestValues() {}
+
+    static void writeValues(final Serializer ser) {
+        for (int i = 0; i < N; i++) {
+            ser.write(i);
+            ser.write((double) i);
+            ser.write("s" + i);
+            ser.write(Optional.of(i));
+        }
+    }
+
+    /**
+     * Reads the values written by {@link #writeValues(Serializer)} and checks that nothing follows them.
+     */
+    static void readValues(final Deserializer des) {
+        for (int i = 0; i < N; i++) {
+            assertTrue(des.hasRemaining());
+            assertEquals(i, des.readInt());
+            assertEquals(i, des.readDouble());
+            assertEquals("s" + i, des.read());
+            assertEquals(Optional.of(i), des.read());
+        }
+        assertFalse(des.hasRemaining());
+        assertThrows(IllegalStateException.class, des::readByte);
+    }
+
+    /**
+     * Returns the values written by an in-memory Serializer with the default settings.
+     */
+    static byte[] serialized() {
+        final Serializer ser = new Serializer();
+        writeValues(ser);
+        return ser.toByteArray();
+    }
+}
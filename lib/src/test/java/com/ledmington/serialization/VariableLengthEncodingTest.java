@@ -0,0 +1,221 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public final class VariableLengthEncodingTest {
+
+    private Serializer ser;
+
+    @BeforeEach
+    public void setup() {
+        ser = new Serializer();
+        ser.setVariableLengthEncoding(true);
+    }
+
+    private Deserializer deserializer() {
+        final Deserializer des = new Deserializer(ser.toByteArray());
+        des.setVariableLengthEncoding(true);
+        return des;
+    }
+
+    private static Stream<Arguments> ints() {
+        return Stream.of(
+                Arguments.of(0, 1),
+                Arguments.of(-1, 1),
+                Arguments.of(1, 1),
+                Arguments.of(63, 1),
+                Arguments.of(-64, 1),
+                Arguments.of(64, 2),
+                Arguments.of(-65, 2),
+                Arguments.of(8191, 2),
+                Arguments.of(8192, 3),
+                Arguments.of(Integer.MAX_VALUE, 5),
+                Arguments.of(Integer.MIN_VALUE, 5));
+    }
+
+    @ParameterizedTest
+    @MethodSource("ints")
+    public void intSize(final int value, final int expectedSize) {
+        ser.write(value);
+        assertEquals(expectedSize, ser.size());
+        assertEquals(value, deserializer().readInt());
+    }
+
+    private static Stream<Arguments> longs() {
+        return Stream.of(
+                Arguments.of(0L, 1),
+                Arguments.of(-1L, 1),
+                Arguments.of(64L, 2),
+                Arguments.of((long) Integer.MAX_VALUE, 5),
+                Arguments.of(Long.MAX_VALUE, 10),
+                Arguments.of(Long.MIN_VALUE, 10));
+    }
+
+    @ParameterizedTest
+    @MethodSource("longs")
+    public void longSize(final long value, final int expectedSize) {
+        ser.write(value);
+        assertEquals(expectedSize, ser.size());
+        assertEquals(value, deserializer().readLong());
+    }
+
+    @Test
+    public void zigzag() {
+        ser.write(0);
+        ser.write(-1);
+        ser.write(1);
+        ser.write(-2);
+        ser.write(150);
+        assertArrayEquals(new byte[] {0x00, 0x01, 0x02, 0x03, (byte) 0xac, 0x02}, ser.toByteArray());
+    }
+
+    @Test
+    public void shorts() {
+        ser.write(Short.MIN_VALUE);
+        ser.write((short) -1);
+        ser.write(Short.MAX_VALUE);
+        final Deserializer des = deserializer();
+        assertEquals(Short.MIN_VALUE, des.readShort());
+        assertEquals((short) -1, des.readShort());
+        assertEquals(Short.MAX_VALUE, des.readShort());
+    }
+
+    @Test
+    public void fixedSizeTypesAreUnchanged() {
+        ser.write('a');
+        ser.write(1.0f);
+        ser.write(1.0);
+        assertEquals(2 + 4 + 8, ser.size());
+        final Deserializer des = deserializer();
+        assertEquals('a', des.readChar());
+        assertEquals(1.0f, des.readFloat());
+        assertEquals(1.0, des.readDouble());
+    }
+
+    @Test
+    public void stringLength() {
+        ser.write("abc");
+        assertArrayEquals(
+                new byte[] {ClassCodes.STRING.getCode(), Serializer.STRING_LATIN1, 0x03, 0x61, 0x62, 0x63},
+                ser.toByteArray());
+        assertEquals("abc", deserializer().read());
+    }
+
+    @Test
+    public void boxedValues() {
+        final Object[] values = {(short) -5, 12_345, -9_876_543_210L, "x".repeat(300), Integer.MIN_VALUE};
+        for (final Object v : values) {
+            ser.write(v);
+        }
+        final Deserializer des = deserializer();
+        for (final Object v : values) {
+            assertEquals(v, des.read());
+        }
+    }
+
+    @Test
+    public void smallValuesAreSmaller() {
+        final Serializer fixed = new Serializer();
+        for (int i = 0; i < 1000; i++) {
+            fixed.write(i % 100);
+            ser.write(i % 100);
+        }
+        assertEquals(4000, fixed.size());
+        // zigzag maps 0..63 to one byte and 64..99 to two bytes
+        assertEquals(10 * (64 + 36 * 2), ser.size());
+    }
+
+    @Test
+    public void streaming() {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final Serializer streaming = Serializer.to(baos, 10);
+        streaming.setVariableLengthEncoding(true);
+        for (int i = 0; i < 1000; i++) {
+            streaming.write((long) i * i * i * i);
+        }
+        streaming.flush();
+        final Deserializer des = Deserializer.from(new ByteArrayInputStream(baos.toByteArray()), 8);
+        des.setVariableLengthEncoding(true);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals((long) i * i * i * i, des.readLong());
+        }
+    }
+
+    @Test
+    public void malformedVarInt() {
+        final Deserializer des = new Deserializer(
+                new byte[] {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x01});
+        des.setVariableLengthEncoding(true);
+        assertThrows(IllegalStateException.class, des::readInt);
+    }
+
+    private static Deserializer varints(final int... bytes) {
+        final byte[] b = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            b[i] = (byte) bytes[i];
+        }
+        final Deserializer des = new Deserializer(b);
+        des.setVariableLengthEncoding(true);
+        return des;
+    }
+
+    @Test
+    public void lastByteOverflowsInt() {
+        assertEquals(Integer.MIN_VALUE, varints(0xff, 0xff, 0xff, 0xff, 0x0f).readInt());
+        assertThrows(IllegalStateException.class, varints(0xff, 0xff, 0xff, 0xff, 0x10)::readInt);
+        assertThrows(IllegalStateException.class, varints(0x80, 0x80, 0x80, 0x80, 0x80, 0x00)::readInt);
+    }
+
+    @Test
+    public void lastByteOverflowsLong() {
+        assertEquals(Long.MIN_VALUE, varints(0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0x01).readLong());
+        assertThrows(
+                IllegalStateException.class,
+                varints(0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0x02)::readLong);
+        assertThrows(
+                IllegalStateException.class,
+                varints(0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x00)::readLong);
+    }
+
+    @Test
+    public void shortOutOfRange() {
+        assertEquals(Short.MIN_VALUE, varints(0xff, 0xff, 0x03).readShort());
+        assertThrows(IllegalStateException.class, varints(0x80, 0x80, 0x04)::readShort);
+    }
+
+    @Test
+    public void truncatedVarInt() {
+        final Deserializer des = new Deserializer(new byte[] {(byte) 0x80});
+        des.setVariableLengthEncoding(true);
+        assertThrows(IllegalStateException.class, des::readInt);
+    }
+}
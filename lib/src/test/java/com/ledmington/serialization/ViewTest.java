@@ -0,0 +1,205 @@
+/*
+* java-serialization - A simple, efficient and fast serialization library.
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public final class ViewTest {
+
+    private record Message(String route, long id, Optional<String> tenant, List<Integer> payload) {}
+
+    private static Deserializer deserializer(final boolean varint, final Object... objs) {
+        final Serializer ser = new Serializer();
+        ser.setVariableLengthEncoding(varint);
+        for (final Object obj : objs) {
+            ser.write(obj);
+        }
+        final Deserializer des = new Deserializer(ser.toByteArray());
+        des.setClassLoader(ViewTest.class.getClassLoader());
+        des.setVariableLengthEncoding(varint);
+        return des;
+    }
+
+    private static Stream<Object> values() {
+        return Stream.of(
+                42,
+                "hello",
+                Optional.of(List.of(1, 2, 3)),
+                List.of(1, "2", 3L),
+                List.of(1, 2, 3),
+                new LinkedHashMap<>(Map.of("a", 1L, "b", 2L, "c", 3L)),
+                new Message("orders", 7L, Optional.of("acme"), List.of(1, 2)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("values")
+    public void get(final Object obj) {
+        final Deserializer des = deserializer(false, obj, "next");
+        assertEquals(obj, des.readView().get());
+        assertEquals("next", des.read());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "key", "caffè", "€uro", "😀 emoji", "日本語"})
+    public void contentEquals(final String s) {
+        final View view = deserializer(false, s).readView();
+        assertTrue(view.isString());
+        assertTrue(view.contentEquals(s));
+        assertFalse(view.contentEquals(s + "x"));
+        assertFalse(view.contentEquals("x" + s));
+        if (!s.isEmpty()) {
+            assertFalse(view.contentEquals(s.substring(0, s.length() - 1)));
+        }
+    }
+
+    @Test
+    public void contentEqualsOfOtherTypes() {
+        assertFalse(deserializer(false, 1).readView().contentEquals("1"));
+    }
+
+    @Test
+    public void optional() {
+        final Deserializer des = deserializer(false, Optional.of("x"), Optional.empty());
+        final View present = des.readView();
+        assertTrue(present.isOptional());
+        assertTrue(present.isPresent());
+        assertTrue(present.value().contentEquals("x"));
+        final View empty = des.readView();
+        assertFalse(empty.isPresent());
+        assertThrows(NoSuchElementException.class, empty::value);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void collections(final boolean varint) {
+        final Deserializer des = deserializer(varint, List.of(1, "two", 3L), List.of("a", "b", "c"));
+        final View mixed = des.readView();
+        assertTrue(mixed.isCollection());
+        assertEquals(3, mixed.size());
+        assertEquals(1, mixed.get(0).get());
+        assertTrue(mixed.get(1).contentEquals("two"));
+        assertEquals(3L, mixed.get(2).get());
+        final View homogeneous = des.readView();
+        assertTrue(homogeneous.isCollection());
+        assertEquals(3, homogeneous.size());
+        assertTrue(homogeneous.get(2).contentEquals("c"));
+        assertThrows(IndexOutOfBoundsException.class, () -> homogeneous.get(3));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void maps(final boolean varint) {
+        final Map<String, Object> mixed = new LinkedHashMap<>();
+        mixed.put("a", 1);
+        mixed.put("b", "two");
+        final Map<String, Long> homogeneous = new LinkedHashMap<>();
+        homogeneous.put("x", 1L);
+        homogeneous.put("y", 2L);
+        homogeneous.put("z", 3L);
+        final Deserializer des = deserializer(varint, mixed, homogeneous);
+
+        final View first = des.readView();
+        assertTrue(first.isMap());
+        assertEquals(2, first.size());
+        assertTrue(first.key(1).contentEquals("b"));
+        assertTrue(first.value(1).contentEquals("two"));
+        assertTrue(first.get("b").contentEquals("two"));
+        assertEquals(1, first.get("a").get());
+        assertNull(first.get("c"));
+
+        final View second = des.readView();
+        assertTrue(second.isMap());
+        assertEquals(3, second.size());
+        assertTrue(second.key(2).contentEquals("z"));
+        assertEquals(2L, second.value(1).get());
+        assertEquals(3L, second.get("z").get());
+        assertNull(second.get("w"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void records(final boolean varint) {
+        final View view = deserializer(varint, new Message("orders", 7L, Optional.of("acme"), List.of(1, 2)))
+                .readView();
+        assertTrue(view.isRecord());
+        assertTrue(view.component(0).contentEquals("orders"));
+        assertEquals(7L, view.component(1).get());
+        assertTrue(view.component(2).value().contentEquals("acme"));
+        assertEquals(2, view.component(3).get(1).get());
+        assertThrows(IndexOutOfBoundsException.class, () -> view.component(4));
+    }
+
+    @Test
+    public void primitiveArrays() {
+        final View view = deserializer(false, new int[] {1, 2, 3}).readView();
+        assertFalse(view.isCollection());
+        assertArrayEquals(new int[] {1, 2, 3}, (int[]) view.get());
+    }
+
+    @Test
+    public void wrongType() {
+        final View view = deserializer(false, "s").readView();
+        assertThrows(IllegalStateException.class, view::size);
+        assertThrows(IllegalStateException.class, view::isPresent);
+        assertThrows(IllegalStateException.class, () -> view.component(0));
+    }
+
+    @Test
+    public void viewsStayValid() {
+        final Deserializer des = deserializer(false, "first", "second");
+        final View first = des.readView();
+        final View second = des.readView();
+        assertTrue(first.contentEquals("first"));
+        assertTrue(second.contentEquals("second"));
+        assertEquals("first", first.get());
+        assertFalse(des.hasRemaining());
+    }
+
+    @Test
+    public void streaming() {
+        final Serializer ser = new Serializer();
+        ser.write("s");
+        final Deserializer des = Deserializer.from(new ByteArrayInputStream(ser.toByteArray()));
+        assertThrows(IllegalStateException.class, des::readView);
+    }
+
+    @Test
+    public void referenceTracking() {
+        final Deserializer des = deserializer(false, "s");
+        des.setReferenceTracking(true);
+        assertThrows(IllegalStateException.class, des::readView);
+    }
+}
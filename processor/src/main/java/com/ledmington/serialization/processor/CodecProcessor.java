@@ -0,0 +1,240 @@
+/*
+* java-serialization - Annotation processor
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization.processor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates, for each record annotated with {@code com.ledmington.serialization.GenerateCodec}, a class in the same
+ * package implementing both {@code Codec} and {@code CodecProvider}, and lists all of them in {@code
+ * META-INF/services/com.ledmington.serialization.CodecProvider}.
+ *
+ * <p>The generated code writes and reads the components in declaration order, exactly like the codecs built at
+ * runtime, so the two are interchangeable. It uses neither reflection nor MethodHandles, therefore it also works
+ * under GraalVM native-image, which registers the services found in {@code META-INF/services} by itself.
+ */
+public final class CodecProcessor extends AbstractProcessor {
+
+    private static final String PACKAGE = "com.ledmington.serialization";
+    private static final String ANNOTATION = PACKAGE + ".GenerateCodec";
+    private static final String SERVICE = "META-INF/services/" + PACKAGE + ".CodecProvider";
+
+    // sorted, so that the service file does not depend on the order of processing
+    private final Set<String> generated = new TreeSet<>();
+    private final List<Element> originatingElements = new ArrayList<>();
+
+    public CodecProcessor() {}
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Set.of(ANNOTATION);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!generated.isEmpty()) {
+                writeServiceFile();
+            }
+            return false;
+        }
+        final TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+        if (annotation == null) {
+            return false;
+        }
+        for (final Element e : roundEnv.getElementsAnnotatedWith(annotation)) {
+            if (e.getKind() != ElementKind.RECORD) {
+                error(e, "Only records can be annotated with @GenerateCodec.");
+                continue;
+            }
+            if (!isAccessible(e, e)) {
+                error(e, "Records annotated with @GenerateCodec must not be private nor nested in a private class.");
+                continue;
+            }
+            if (hasInaccessibleComponents((TypeElement) e)) {
+                continue;
+            }
+            generate((TypeElement) e);
+        }
+        return true;
+    }
+
+    /**
+     * Reports the components whose type can't be named by the codec generated in the package of the given record.
+     */
+    private boolean hasInaccessibleComponents(final TypeElement record) {
+        boolean found = false;
+        for (final RecordComponentElement rc : record.getRecordComponents()) {
+            TypeMirror type = processingEnv.getTypeUtils().erasure(rc.asType());
+            while (type.getKind() == TypeKind.ARRAY) {
+                type = ((ArrayType) type).getComponentType();
+            }
+            if (type.getKind() == TypeKind.DECLARED && !isAccessible(((DeclaredType) type).asElement(), record)) {
+                error(rc, String.format(
+                        "The type of component %s is not accessible from the generated codec.", rc.getSimpleName()));
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Checks whether the given type can be named from a class in the package of {@code from}.
+     */
+    private boolean isAccessible(final Element type, final Element from) {
+        final boolean samePackage = processingEnv
+                .getElementUtils()
+                .getPackageOf(type)
+                .equals(processingEnv.getElementUtils().getPackageOf(from));
+        for (Element x = type; x.getKind() != ElementKind.PACKAGE; x = x.getEnclosingElement()) {
+            final Set<Modifier> modifiers = x.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || (!samePackage && !modifiers.contains(Modifier.PUBLIC))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void error(final Element e, final String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, e);
+    }
+
+    private void generate(final TypeElement type) {
+        final String pkg =
+                processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        final String binaryName =
+                processingEnv.getElementUtils().getBinaryName(type).toString();
+        final String simpleName = (pkg.isEmpty() ? binaryName : binaryName.substring(pkg.length() + 1))
+                        .replace('$', '_')
+                + "_Codec";
+        final String qualifiedName = pkg.isEmpty() ? simpleName : pkg + "." + simpleName;
+        final String recordName = erasure(type.asType());
+
+        final StringBuilder sb = new StringBuilder();
+        if (!pkg.isEmpty()) {
+            sb.append("package ").append(pkg).append(";\n\n");
+        }
+        sb.append("/**\n * Codec of {@link ")
+                .append(recordName)
+                .append("}, generated by ")
+                .append(CodecProcessor.class.getName())
+                .append(".\n */\n");
+        sb.append("@SuppressWarnings({\"rawtypes\", \"unchecked\"})\n");
+        sb.append("public final class ")
+                .append(simpleName)
+                .append(" implements " + PACKAGE + ".Codec<Object>, " + PACKAGE + ".CodecProvider {\n\n");
+        sb.append("    public ").append(simpleName).append("() {}\n\n");
+        sb.append("    @Override\n    public Class<?> type() {\n        return ")
+                .append(recordName)
+                .append(".class;\n    }\n\n");
+        sb.append("    @Override\n    public " + PACKAGE + ".Codec<Object> codec() {\n        return this;\n    }\n\n");
+
+        sb.append("    @Override\n    public void write(final " + PACKAGE + ".Serializer ser, final Object value) {\n");
+        final List<? extends RecordComponentElement> components = type.getRecordComponents();
+        if (!components.isEmpty()) {
+            sb.append("        final ")
+                    .append(recordName)
+                    .append(" r = (")
+                    .append(recordName)
+                    .append(") value;\n");
+        }
+        for (final RecordComponentElement rc : components) {
+            sb.append("        ser.write(r.")
+                    .append(rc.getAccessor().getSimpleName())
+                    .append("());\n");
+        }
+        sb.append("    }\n\n");
+
+        sb.append("    @Override\n    public Object read(final " + PACKAGE + ".Deserializer des) {\n");
+        sb.append("        return new ").append(recordName).append("(");
+        for (int i = 0; i < components.size(); i++) {
+            sb.append(i == 0 ? "\n                " : ",\n                ")
+                    .append(reader(components.get(i).asType()));
+        }
+        sb.append(");\n    }\n}\n");
+
+        try (Writer w = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            w.write(sb.toString());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        generated.add(qualifiedName);
+        originatingElements.add(type);
+    }
+
+    private String erasure(final TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    /**
+     * Returns the expression which reads a value of the given type.
+     */
+    private String reader(final TypeMirror type) {
+        final TypeKind kind = type.getKind();
+        if (kind.isPrimitive()) {
+            final String name = kind.name().toLowerCase(Locale.ROOT);
+            return "des.read" + Character.toUpperCase(name.charAt(0)) + name.substring(1) + "()";
+        }
+        final String erased = erasure(type);
+        return "java.lang.Object".equals(erased) ? "des.read()" : "(" + erased + ") des.read()";
+    }
+
+    private void writeServiceFile() {
+        try {
+            final FileObject file = processingEnv
+                    .getFiler()
+                    .createResource(
+                            StandardLocation.CLASS_OUTPUT, "", SERVICE, originatingElements.toArray(new Element[0]));
+            try (Writer w = file.openWriter()) {
+                for (final String name : generated) {
+                    w.write(name);
+                    w.write('\n');
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
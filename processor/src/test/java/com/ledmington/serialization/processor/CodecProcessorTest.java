@@ -0,0 +1,154 @@
+/*
+* java-serialization - Annotation processor
+* Copyright (C) 2023-2023 Filippo Barbari <filippo.barbari@gmail.com>
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.ledmington.serialization.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public final class CodecProcessorTest {
+
+    private static final String SERVICE = "META-INF/services/com.ledmington.serialization.CodecProvider";
+
+    @TempDir
+    private Path out;
+
+    private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+    private static JavaFileObject source(final String name, final String code) {
+        return new SimpleJavaFileObject(
+                URI.create("string:///" + name.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+    /**
+     * Compiles the given sources, each one given as its qualified name followed by its code, together with the codecs
+     * generated for them. The classes of the library come from the class path of the tests. Returns true if there
+     * were no errors.
+     */
+    private boolean process(final String... namesAndCode) throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final List<JavaFileObject> sources = new ArrayList<>();
+        for (int i = 0; i < namesAndCode.length; i += 2) {
+            sources.add(source(namesAndCode[i], namesAndCode[i + 1]));
+        }
+        try (StandardJavaFileManager files =
+                compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
+            files.setLocationFromPaths(StandardLocation.CLASS_OUTPUT, List.of(out));
+            files.setLocationFromPaths(StandardLocation.SOURCE_OUTPUT, List.of(out));
+            final JavaCompiler.CompilationTask task =
+                    compiler.getTask(null, files, diagnostics, List.of(), null, sources);
+            task.setProcessors(List.of(new CodecProcessor()));
+            return task.call();
+        }
+    }
+
+    private List<String> errors() {
+        return diagnostics.getDiagnostics().stream()
+                .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                .map(d -> d.getMessage(Locale.ROOT))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void generatesCodecsAndServiceFile() throws IOException {
+        assertTrue(process(
+                "p.Point",
+                "package p; @com.ledmington.serialization.GenerateCodec public record Point(int x, int y) {}",
+                "p.Outer",
+                "package p; public class Outer { @com.ledmington.serialization.GenerateCodec"
+                        + " record Inner(String s, java.util.List<Point> points, Point[] array) {} }"),
+                () -> errors().toString());
+        assertEquals(List.of(), errors());
+        assertTrue(Files.exists(out.resolve("p/Point_Codec.class")));
+        assertTrue(Files.exists(out.resolve("p/Outer_Inner_Codec.class")));
+        // sorted, whatever the order of processing
+        assertEquals(List.of("p.Outer_Inner_Codec", "p.Point_Codec"), Files.readAllLines(out.resolve(SERVICE)));
+    }
+
+    @Test
+    public void noServiceFileWithoutRecords() throws IOException {
+        assertTrue(process("p.Empty", "package p; public class Empty {}"), () -> errors().toString());
+        assertFalse(Files.exists(out.resolve(SERVICE)));
+    }
+
+    @Test
+    public void onlyRecords() throws IOException {
+        assertFalse(process(
+                "p.NotARecord", "package p; @com.ledmington.serialization.GenerateCodec class NotARecord {}"));
+        assertEquals(List.of("Only records can be annotated with @GenerateCodec."), errors());
+        assertFalse(Files.exists(out.resolve(SERVICE)));
+    }
+
+    @Test
+    public void privateRecord() throws IOException {
+        assertFalse(process(
+                "p.Outer",
+                "package p; class Outer { @com.ledmington.serialization.GenerateCodec private record R(int x) {} }"));
+        assertEquals(
+                List.of("Records annotated with @GenerateCodec must not be private nor nested in a private class."),
+                errors());
+    }
+
+    @Test
+    public void privateComponentType() throws IOException {
+        assertFalse(process(
+                "p.Outer",
+                "package p; class Outer { private static class Hidden {}"
+                        + " @com.ledmington.serialization.GenerateCodec record R(int x, Hidden[] h) {} }"));
+        assertEquals(List.of("The type of component h is not accessible from the generated codec."), errors());
+    }
+
+    @Test
+    public void protectedComponentTypeOfAnotherPackage() throws IOException {
+        // the record can name the inherited type, but the codec generated next to it can't
+        assertFalse(process(
+                "q.Base",
+                "package q; public class Base { protected static class Inherited {} }",
+                "p.Sub",
+                "package p; public class Sub extends q.Base {"
+                        + " @com.ledmington.serialization.GenerateCodec public record R(Inherited i) {} }"));
+        assertEquals(List.of("The type of component i is not accessible from the generated codec."), errors());
+    }
+}